@@ -0,0 +1,74 @@
+package com.arjvik.arjmart.urlparser.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class records latencies in nanoseconds into log-linear buckets,
+ * so that percentiles far into the tail can be reported with bounded memory and about 3% error.
+ * Recording is lock-free and may be done from many threads.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+	/**
+	 * Records a latency
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(Math.max(0, nanos)));
+	}
+
+	/**
+	 * Returns the number of latencies recorded
+	 * @return the number of latencies
+	 */
+	public long count() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * Returns a percentile of the recorded latencies
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the latency in nanoseconds, rounded up to the end of its bucket, or 0 if nothing was recorded
+	 */
+	public long percentile(double percentile) {
+		long total = count();
+		if(total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if(seen >= rank)
+				return upperBound(i);
+		}
+		return upperBound(counts.length() - 1);
+	}
+
+	/**
+	 * Values below {@link #SUB_BUCKETS} get a bucket each. Above that, every power of two is split into {@link #SUB_BUCKETS} buckets.
+	 */
+	private static int bucket(long value) {
+		if(value < SUB_BUCKETS)
+			return (int) value;
+		int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+		return magnitude * SUB_BUCKETS + (int) (value >>> (magnitude - 1)) - SUB_BUCKETS;
+	}
+
+	private static long upperBound(int bucket) {
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+		int magnitude = bucket / SUB_BUCKETS;
+		long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << (magnitude - 1)) - 1;
+	}
+}
@@ -0,0 +1,229 @@
+package com.arjvik.arjmart.urlparser.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The LoadTest class drives a {@link RoutingServer} on the loopback interface with traffic from a {@link TrafficGenerator},
+ * and reports end-to-end and routing latency percentiles, status codes, and allocation rates.
+ * It runs entirely offline. Options are given as {@code --name=value}:
+ * <br>
+ * <pre>
+ * java -cp bin com.arjvik.arjmart.urlparser.loadtest.LoadTest --mode=ROUTER --clients=16 --seconds=30
+ * </pre>
+ * <ul>
+ * <li>{@code mode}: ROUTER or PARSER, see {@link RoutingServer.Mode} (default ROUTER)</li>
+ * <li>{@code clients}: the number of client threads, each with its own keep-alive connection (default 8)</li>
+ * <li>{@code rate}: the total number of requests per second, spread evenly over the clients, or 0 for each client to send its next request
+ * as soon as the last one completes (default 0)</li>
+ * <li>{@code serverThreads}: the number of threads handling requests (default 8)</li>
+ * <li>{@code warmup}, {@code seconds}: the length of the warmup and of the measurement, in seconds (default 5 and 20)</li>
+ * <li>{@code routes}, {@code deepRoutes}: the number of shallow and deep routes (default 500 and 20)</li>
+ * <li>{@code zipf}: the exponent of the Zipf distribution of routes (default 1.0)</li>
+ * <li>{@code malformed}, {@code deep}, {@code unroutable}: the fractions of each kind of request (default 0.05, 0.1 and 0.05)</li>
+ * <li>{@code seed}: the seed of the traffic (default 1)</li>
+ * </ul>
+ * Without a rate, the clients are a closed loop: a slow response delays the requests behind it, which are then never measured,
+ * so the percentiles understate the latency seen at a fixed arrival rate. With a rate, each client sends on a fixed schedule,
+ * and the latency of each request is measured from the time it was scheduled to be sent, even if the client sent it late
+ * because an earlier response was slow. The rate should leave each client enough time for a request, or every request is late.
+ * Unless it is already set, LoadTest sets the {@code sun.net.httpserver.nodelay} system property when it starts,
+ * so that the JDK's HTTP server does not delay small responses.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+public class LoadTest {
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private static final Map<String,String> DEFAULTS = new HashMap<>();
+	static {
+		DEFAULTS.put("mode", "ROUTER");
+		DEFAULTS.put("clients", "8");
+		DEFAULTS.put("rate", "0");
+		DEFAULTS.put("serverThreads", "8");
+		DEFAULTS.put("warmup", "5");
+		DEFAULTS.put("seconds", "20");
+		DEFAULTS.put("routes", "500");
+		DEFAULTS.put("deepRoutes", "20");
+		DEFAULTS.put("zipf", "1.0");
+		DEFAULTS.put("malformed", "0.05");
+		DEFAULTS.put("deep", "0.1");
+		DEFAULTS.put("unroutable", "0.05");
+		DEFAULTS.put("seed", "1");
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String,String> options = new HashMap<>(DEFAULTS);
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if(!arg.startsWith("--") || equals < 0 || !DEFAULTS.containsKey(arg.substring(2, equals))){
+				System.err.println("Unknown option "+arg+", options are "+DEFAULTS.keySet());
+				System.exit(1);
+			}
+			options.put(arg.substring(2, equals), arg.substring(equals + 1));
+		}
+		TrafficGenerator generator = new TrafficGenerator(
+				Integer.parseInt(options.get("routes")), Integer.parseInt(options.get("deepRoutes")),
+				Double.parseDouble(options.get("zipf")), Double.parseDouble(options.get("malformed")),
+				Double.parseDouble(options.get("deep")), Double.parseDouble(options.get("unroutable")));
+		RoutingServer.Mode mode = RoutingServer.Mode.valueOf(options.get("mode"));
+		if(System.getProperty("sun.net.httpserver.nodelay") == null)
+			System.setProperty("sun.net.httpserver.nodelay", "true"); //read once, when the HTTP server is first used
+		RoutingServer server = new RoutingServer(mode, generator.getRoutes(), Integer.parseInt(options.get("serverThreads")));
+		server.start();
+		try{
+			LoadTest test = new LoadTest(generator, server.getPort(), Integer.parseInt(options.get("clients")), Double.parseDouble(options.get("rate")), Long.parseLong(options.get("seed")));
+			System.out.println("Warming up for "+options.get("warmup")+"s");
+			test.run(Long.parseLong(options.get("warmup")) * 1000, new Result());
+			server.resetStatistics();
+			System.out.println("Measuring for "+options.get("seconds")+"s with "+options.get("clients")+" clients in "+mode+" mode, "
+					+(test.interval > 0 ? "open loop at "+options.get("rate")+" requests/s" : "closed loop"));
+			Result result = new Result();
+			long allocated = totalAllocatedBytes();
+			long start = System.nanoTime();
+			test.run(Long.parseLong(options.get("seconds")) * 1000, result);
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			allocated = totalAllocatedBytes() - allocated;
+			result.print(elapsed);
+			System.out.printf("allocation: server %.1f MB/s, clients %.1f MB/s, %.0f bytes/request while routing%n",
+					allocated / elapsed / 1e6, result.clientBytes.get() / elapsed / 1e6, (double) server.getRoutingBytes() / server.getRoutingLatency().count());
+			System.out.printf("routing latency: p50 %s  p99 %s  p99.9 %s%n",
+					micros(server.getRoutingLatency().percentile(50)), micros(server.getRoutingLatency().percentile(99)), micros(server.getRoutingLatency().percentile(99.9)));
+		}finally{
+			server.stop();
+		}
+	}
+
+	private final TrafficGenerator generator;
+	private final int port;
+	private final int clients;
+	/** The time between the requests of each client, in nanoseconds, or 0 for a closed loop */
+	private final long interval;
+	private final long seed;
+
+	private LoadTest(TrafficGenerator generator, int port, int clients, double rate, long seed) {
+		this.generator = generator;
+		this.port = port;
+		this.clients = clients;
+		this.interval = rate > 0 ? Math.max(1, Math.round(1e9 * clients / rate)) : 0;
+		this.seed = seed;
+	}
+
+	private void run(long millis, Result result) throws InterruptedException {
+		long start = System.nanoTime();
+		long deadline = start + millis * 1_000_000;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			Random random = new Random(seed * 31 + i);
+			long first = start + interval * i / clients; //staggered, so that the clients do not send in bursts
+			Thread thread = new Thread(() -> {
+				long id = Thread.currentThread().getId();
+				long allocated = THREADS.getThreadAllocatedBytes(id);
+				if(interval > 0){
+					for (long scheduled = first; scheduled < deadline; scheduled += interval) {
+						TrafficGenerator.Kind kind = generator.nextKind(random);
+						String URI = generator.nextURI(kind, random);
+						long wait;
+						while((wait = scheduled - System.nanoTime()) > 0)
+							LockSupport.parkNanos(wait);
+						request(kind, URI, result, scheduled);
+					}
+				}else{
+					while(System.nanoTime() < deadline){
+						TrafficGenerator.Kind kind = generator.nextKind(random);
+						String URI = generator.nextURI(kind, random);
+						request(kind, URI, result, System.nanoTime());
+					}
+				}
+				result.clientBytes.addAndGet(THREADS.getThreadAllocatedBytes(id) - allocated);
+			}, "client-"+i);
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads)
+			thread.join();
+	}
+
+	/**
+	 * Sends one request, measuring its latency from the given start, which is the time it was scheduled to be sent in an open loop
+	 */
+	private void request(TrafficGenerator.Kind kind, String URI, Result result, long start) {
+		try{
+			HttpURLConnection connection = (HttpURLConnection) new URL("http", "127.0.0.1", port, URI).openConnection();
+			int status = connection.getResponseCode();
+			try(InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()){
+				if(body != null)
+					while(body.read() >= 0);
+			}
+			result.record(kind, status, System.nanoTime() - start);
+		}catch(IOException e){
+			result.errors.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the bytes allocated by the threads that are alive, which include the server's threads but not finished clients
+	 */
+	private static long totalAllocatedBytes() {
+		long total = 0;
+		for (long allocated : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds()))
+			total += Math.max(0, allocated);
+		return total;
+	}
+
+	private static String micros(long nanos) {
+		return String.format("%.1fus", nanos / 1e3);
+	}
+
+	/**
+	 * The latencies and status codes of one run, by kind of request
+	 */
+	private static class Result {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final Map<TrafficGenerator.Kind,LatencyHistogram> latencyByKind = new EnumMap<>(TrafficGenerator.Kind.class);
+		final AtomicLongArray statuses = new AtomicLongArray(600);
+		final AtomicLong errors = new AtomicLong();
+		final AtomicLong clientBytes = new AtomicLong();
+
+		Result() {
+			for (TrafficGenerator.Kind kind : TrafficGenerator.Kind.values())
+				latencyByKind.put(kind, new LatencyHistogram());
+		}
+
+		void record(TrafficGenerator.Kind kind, int status, long nanos) {
+			latency.record(nanos);
+			latencyByKind.get(kind).record(nanos);
+			if(status >= 0 && status < statuses.length())
+				statuses.incrementAndGet(status);
+		}
+
+		void print(double seconds) {
+			System.out.printf("%d requests, %.0f requests/s, %d errors%n", latency.count(), latency.count() / seconds, errors.get());
+			StringBuilder codes = new StringBuilder("statuses:");
+			for (int status = 0; status < statuses.length(); status++)
+				if(statuses.get(status) > 0)
+					codes.append(' ').append(status).append('=').append(statuses.get(status));
+			System.out.println(codes);
+			print("all", latency);
+			for (Map.Entry<TrafficGenerator.Kind,LatencyHistogram> entry : latencyByKind.entrySet())
+				print(entry.getKey().toString().toLowerCase(), entry.getValue());
+		}
+
+		static void print(String name, LatencyHistogram histogram) {
+			System.out.printf("%-10s end-to-end latency: p50 %s  p99 %s  p99.9 %s  (%d requests)%n", name,
+					micros(histogram.percentile(50)), micros(histogram.percentile(99)), micros(histogram.percentile(99.9)), histogram.count());
+		}
+	}
+}
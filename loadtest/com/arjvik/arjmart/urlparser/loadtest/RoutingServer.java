@@ -0,0 +1,180 @@
+package com.arjvik.arjmart.urlparser.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.arjvik.arjmart.urlparser.ParameterNotProvidedException;
+import com.arjvik.arjmart.urlparser.ParameterParseException;
+import com.arjvik.arjmart.urlparser.RouteMatch;
+import com.arjvik.arjmart.urlparser.UrlParametersMap;
+import com.arjvik.arjmart.urlparser.UrlParser;
+import com.arjvik.arjmart.urlparser.UrlRouter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The RoutingServer class is a local stand-in for a production server, built on the JDK's {@code com.sun.net.httpserver}.
+ * Every request is routed by its path, and its parameters are read from the resulting {@link UrlParametersMap}.
+ * In {@link Mode#ROUTER ROUTER} mode, requests are routed with a single {@link UrlRouter}.
+ * In {@link Mode#PARSER PARSER} mode, a {@link UrlParser} is picked by the second segment of the path from a HashMap,
+ * as is done when dispatching to per-service parsers, and values that can not be parsed are answered with 400.
+ * The time spent routing and the bytes allocated while routing are measured on the handling thread,
+ * separately from the overhead of the HTTP server.
+ * The server listens on the loopback address only.
+ * Unless the JVM is started with {@code -Dsun.net.httpserver.nodelay=true}, which {@link LoadTest} sets for itself,
+ * small responses are delayed by Nagle's algorithm and delayed acknowledgements, and latencies measure those delays instead of routing.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+public class RoutingServer {
+
+	/**
+	 * The ways the server can route requests
+	 */
+	public enum Mode {
+		/** Route with a {@link UrlRouter} */
+		ROUTER,
+		/** Pick a strict {@link UrlParser} from a HashMap */
+		PARSER
+	}
+
+	private final Mode mode;
+	private final UrlRouter router = new UrlRouter();
+	private final Map<String,UrlParser> parsers = new HashMap<>();
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private volatile LatencyHistogram routingLatency = new LatencyHistogram();
+	private volatile LongAdder routingBytes = new LongAdder();
+
+	/**
+	 * Creates a new RoutingServer on an ephemeral port. The server is not started.
+	 * Responses are sent with TCP_NODELAY, so that small responses are not held back by delayed acknowledgements.
+	 * @param mode the way to route requests
+	 * @param routes the routes, as name and template pairs
+	 * @param threads the number of threads handling requests
+	 * @throws IOException if the server can not be bound
+	 */
+	public RoutingServer(Mode mode, List<String[]> routes, int threads) throws IOException {
+		this.mode = mode;
+		for (String[] route : routes) {
+			router.putRoute(route[0], route[1]);
+			UrlParser parser = new UrlParser(route[1]);
+			parser.setStrict(true);
+			parsers.put(route[1].split("/")[2], parser);
+		}
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+		executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+	}
+
+	/**
+	 * Starts the server
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops the server, without waiting for requests in progress
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the port the server listens on
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the time spent routing each request, excluding the HTTP server
+	 * @return the routing latencies
+	 */
+	public LatencyHistogram getRoutingLatency() {
+		return routingLatency;
+	}
+
+	/**
+	 * Returns the bytes allocated while routing requests, excluding the HTTP server
+	 * @return the allocated bytes
+	 */
+	public long getRoutingBytes() {
+		return routingBytes.sum();
+	}
+
+	/**
+	 * Discards the routing latencies and allocated bytes measured so far, such as during warmup
+	 */
+	public void resetStatistics() {
+		routingLatency = new LatencyHistogram();
+		routingBytes = new LongAdder();
+	}
+
+	/**
+	 * Returns the router used in {@link Mode#ROUTER ROUTER} mode
+	 * @return the router
+	 */
+	public UrlRouter getRouter() {
+		return router;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try(InputStream body = exchange.getRequestBody()){
+			while(body.read() >= 0);
+		}
+		String path = exchange.getRequestURI().getRawPath();
+		int status;
+		String response;
+		long thread = Thread.currentThread().getId();
+		long allocated = threadBean.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		try{
+			UrlParametersMap params = mode == Mode.ROUTER ? route(path) : parse(path);
+			if(params == null){
+				status = 404;
+				response = "Not Found";
+			}else{
+				status = 200;
+				response = "item "+params.getInt("itemID")+(params.getBoolean("inStock") ? " in stock" : " out of stock");
+			}
+		}catch(ParameterParseException | ParameterNotProvidedException e){
+			status = 400;
+			response = e.getMessage();
+		}
+		routingLatency.record(System.nanoTime() - start);
+		routingBytes.add(threadBean.getThreadAllocatedBytes(thread) - allocated);
+		byte[] bytes = String.valueOf(response).getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try(OutputStream out = exchange.getResponseBody()){
+			out.write(bytes);
+		}
+	}
+
+	private UrlParametersMap route(String path) {
+		RouteMatch match = router.route(path);
+		return match == null ? null : match.getParameters();
+	}
+
+	private UrlParametersMap parse(String path) throws ParameterParseException {
+		String[] segments = path.split("/");
+		UrlParser parser = segments.length > 2 ? parsers.get(segments[2]) : null;
+		return parser == null ? null : parser.parse(path);
+	}
+}
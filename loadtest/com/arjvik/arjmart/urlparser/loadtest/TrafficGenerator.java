@@ -0,0 +1,138 @@
+package com.arjvik.arjmart.urlparser.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The TrafficGenerator class produces a realistic mix of request URIs for a generated set of routes.
+ * Routes are requested with a Zipf distribution, so a few hot routes receive most of the traffic.
+ * A configurable fraction of requests have malformed INT or BOOLEAN values, go to deep paths,
+ * or probe for paths that match no route, as scanners do.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+public class TrafficGenerator {
+
+	/**
+	 * The kinds of requests the generator produces
+	 */
+	public enum Kind {
+		/** A request to a route, with well formed values */
+		VALID,
+		/** A request to a route, with a value that is not an INT or not a BOOLEAN */
+		MALFORMED,
+		/** A request to one of the deep routes, with well formed values */
+		DEEP,
+		/** A request to a path that matches no route */
+		UNROUTABLE
+	}
+
+	private static final String[] PROBES = {"/wp-admin/setup-config.php", "/.env", "/phpmyadmin/index.php", "/cgi-bin/luci", "/api/.git/config"};
+	private static final String[] MALFORMED_INTS = {"abc", "12x", "99999999999", "-", ""};
+	private static final String[] MALFORMED_BOOLEANS = {"maybe", "2", "tru", "nope"};
+
+	private final int routeCount;
+	private final int deepRouteCount;
+	private final double[] cumulative;
+	private final double malformedRate;
+	private final double deepRate;
+	private final double unroutableRate;
+
+	/**
+	 * Creates a new TrafficGenerator
+	 * @param routeCount the number of shallow routes
+	 * @param deepRouteCount the number of deep routes
+	 * @param zipfExponent the exponent of the Zipf distribution of routes, where 0 is uniform and 1 is typical of web traffic
+	 * @param malformedRate the fraction of requests with malformed values
+	 * @param deepRate the fraction of requests to deep routes
+	 * @param unroutableRate the fraction of requests to paths that match no route
+	 */
+	public TrafficGenerator(int routeCount, int deepRouteCount, double zipfExponent, double malformedRate, double deepRate, double unroutableRate) {
+		if(routeCount < 1 || deepRouteCount < 1)
+			throw new IllegalArgumentException("There must be at least one route of each kind");
+		if(malformedRate + deepRate + unroutableRate > 1)
+			throw new IllegalArgumentException("Rates must add up to at most 1");
+		this.routeCount = routeCount;
+		this.deepRouteCount = deepRouteCount;
+		this.malformedRate = malformedRate;
+		this.deepRate = deepRate;
+		this.unroutableRate = unroutableRate;
+		this.cumulative = new double[routeCount];
+		double sum = 0;
+		for (int k = 0; k < routeCount; k++)
+			cumulative[k] = sum += 1 / Math.pow(k + 1, zipfExponent);
+		for (int k = 0; k < routeCount; k++)
+			cumulative[k] /= sum;
+	}
+
+	/**
+	 * Returns the routes that the generated URIs are meant for, as name and template pairs.
+	 * Shallow routes are named {@code svcK}, and deep routes {@code deepK}.
+	 * @return the routes, in the order they should be added
+	 */
+	public List<String[]> getRoutes() {
+		List<String[]> routes = new ArrayList<>();
+		for (int k = 0; k < routeCount; k++)
+			routes.add(new String[]{"svc"+k, "/api/svc"+k+"/items/{INT:itemID}/{BOOLEAN:inStock}"});
+		for (int k = 0; k < deepRouteCount; k++)
+			routes.add(new String[]{"deep"+k, "/api/deep"+k+"/a/b/c/d/e/f/g/h/{STRING:category}/{INT:itemID}/{BOOLEAN:inStock}"});
+		return Collections.unmodifiableList(routes);
+	}
+
+	/**
+	 * Generates the kind of the next request
+	 * @param random the source of randomness, one per thread
+	 * @return the kind of request
+	 */
+	public Kind nextKind(Random random) {
+		double u = random.nextDouble();
+		if(u < malformedRate)
+			return Kind.MALFORMED;
+		if(u < malformedRate + deepRate)
+			return Kind.DEEP;
+		if(u < malformedRate + deepRate + unroutableRate)
+			return Kind.UNROUTABLE;
+		return Kind.VALID;
+	}
+
+	/**
+	 * Generates a URI of the given kind
+	 * @param kind the kind of request
+	 * @param random the source of randomness, one per thread
+	 * @return the URI
+	 */
+	public String nextURI(Kind kind, Random random) {
+		switch(kind){
+		case MALFORMED:
+			int route = zipf(random);
+			if(random.nextBoolean())
+				return "/api/svc"+route+"/items/"+pick(MALFORMED_INTS, random)+"/true";
+			return "/api/svc"+route+"/items/"+random.nextInt(100000)+"/"+pick(MALFORMED_BOOLEANS, random);
+		case DEEP:
+			return "/api/deep"+random.nextInt(deepRouteCount)+"/a/b/c/d/e/f/g/h/category"+random.nextInt(50)+"/"+random.nextInt(100000)+"/"+random.nextBoolean();
+		case UNROUTABLE:
+			return pick(PROBES, random);
+		default:
+			return "/api/svc"+zipf(random)+"/items/"+random.nextInt(100000)+"/"+(random.nextBoolean() ? "yes" : "0");
+		}
+	}
+
+	private int zipf(Random random) {
+		double u = random.nextDouble();
+		int low = 0, high = routeCount - 1;
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			if(cumulative[mid] < u)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private static String pick(String[] values, Random random) {
+		return values[random.nextInt(values.length)];
+	}
+}
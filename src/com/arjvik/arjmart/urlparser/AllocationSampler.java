@@ -0,0 +1,115 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The AllocationSampler class measures the bytes allocated by an operation on the current thread,
+ * using the allocation counters of HotSpot's {@code com.sun.management.ThreadMXBean}.
+ * It is meant for benchmarks and for tests that hold a hot path to an allocation budget. Its usage is as follows:
+ * <br>
+ * <pre>
+ * double bytesPerParse = AllocationSampler.averageBytes(() -&gt; parser.parse(URI), 10000, 1000);
+ * assertTrue("parse allocated "+bytesPerParse+" bytes", bytesPerParse &lt;= 4096);
+ * </pre>
+ * Allocations are counted exactly, not sampled, but include anything the JVM allocates on the thread while the operation runs.
+ * Averaging many runs after a warmup lets the JIT compiler remove allocations that escape analysis can eliminate,
+ * so the result reflects the steady state of the operation.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+public final class AllocationSampler {
+
+	/**
+	 * An operation whose allocations are measured
+	 */
+	@FunctionalInterface
+	public interface Operation {
+		/**
+		 * Runs the operation once
+		 * @throws Exception if the operation fails, which stops the measurement
+		 */
+		void run() throws Exception;
+	}
+
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+	private AllocationSampler() {
+	}
+
+	private static com.sun.management.ThreadMXBean threads() {
+		try{
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			if(!(threads instanceof com.sun.management.ThreadMXBean))
+				return null;
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+			if(!hotspot.isThreadAllocatedMemorySupported())
+				return null;
+			if(!hotspot.isThreadAllocatedMemoryEnabled())
+				hotspot.setThreadAllocatedMemoryEnabled(true);
+			return hotspot;
+		}catch(LinkageError | UnsupportedOperationException | SecurityException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether allocations can be measured on this JVM
+	 * @return true if the JVM counts the bytes allocated by each thread
+	 */
+	public static boolean isSupported() {
+		return THREADS != null;
+	}
+
+	/**
+	 * Returns the total number of bytes the current thread has allocated
+	 * @return the allocated bytes
+	 * @throws UnsupportedOperationException if allocations can not be measured on this JVM
+	 */
+	public static long allocatedBytes() {
+		if(THREADS == null)
+			throw new UnsupportedOperationException("This JVM does not count allocated bytes per thread");
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Measures the bytes allocated by a single run of an operation
+	 * @param operation the operation
+	 * @return the allocated bytes
+	 * @throws Exception if the operation fails
+	 * @throws UnsupportedOperationException if allocations can not be measured on this JVM
+	 */
+	public static long measure(Operation operation) throws Exception {
+		long before = allocatedBytes();
+		operation.run();
+		return allocatedBytes() - before - overhead();
+	}
+
+	/**
+	 * Measures the average bytes allocated by an operation, after running it to warm up
+	 * @param operation the operation
+	 * @param warmup the number of runs before measuring
+	 * @param iterations the number of runs measured
+	 * @return the average allocated bytes per run
+	 * @throws Exception if the operation fails
+	 * @throws UnsupportedOperationException if allocations can not be measured on this JVM
+	 */
+	public static double averageBytes(Operation operation, int warmup, int iterations) throws Exception {
+		if(iterations < 1)
+			throw new IllegalArgumentException("There must be at least one iteration");
+		for (int i = 0; i < warmup; i++)
+			operation.run();
+		long before = allocatedBytes();
+		for (int i = 0; i < iterations; i++)
+			operation.run();
+		return Math.max(0, (double) (allocatedBytes() - before - overhead()) / iterations);
+	}
+
+	/**
+	 * Returns the bytes allocated by reading the counter itself
+	 */
+	private static long overhead() {
+		long first = allocatedBytes();
+		return allocatedBytes() - first;
+	}
+}
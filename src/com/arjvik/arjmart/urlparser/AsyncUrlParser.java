@@ -0,0 +1,194 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The AsyncUrlParser class parses URIs asynchronously on an {@link Executor}, using a shared {@link UrlParser}.
+ * URIs submitted from many threads (or connections) are queued, and drained in batches by a bounded number of tasks,
+ * so that a burst of requests costs one task submission per batch rather than one per URI,
+ * and a large backlog is still parsed on several executor threads at once.
+ * The AsyncUrlParser takes no locks and keeps no per-thread state, so callers may block on the returned stages
+ * from as many threads as they like. Its usage is as follows:
+ * <br>
+ * <pre>
+ * AsyncUrlParser asyncParser = new AsyncUrlParser(parser, executor);
+ * asyncParser.parse(request.getURI()).thenAccept(params -&gt; ...);
+ * </pre>
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see UrlParser
+ */
+public class AsyncUrlParser {
+
+	/**
+	 * The default maximum number of URIs parsed by a single task
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	/**
+	 * The default maximum number of tasks draining URIs at once, one per available processor
+	 */
+	public static final int DEFAULT_MAX_DRAINERS = Runtime.getRuntime().availableProcessors();
+
+	private final UrlParser parser;
+	private final Executor executor;
+	private final int batchSize;
+	private final int maxDrainers;
+	private final Queue<PendingParse> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger drainers = new AtomicInteger();
+
+	/**
+	 * Creates a new AsyncUrlParser with a batch size of {@value #DEFAULT_BATCH_SIZE},
+	 * and up to {@link #DEFAULT_MAX_DRAINERS} tasks draining URIs at once
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param parser the parser to parse URIs with
+	 * @param executor the executor to parse URIs on
+	 */
+	public AsyncUrlParser(UrlParser parser, Executor executor) {
+		this(parser, executor, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates a new AsyncUrlParser with up to {@link #DEFAULT_MAX_DRAINERS} tasks draining URIs at once
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param parser the parser to parse URIs with
+	 * @param executor the executor to parse URIs on
+	 * @param batchSize the maximum number of URIs parsed by a single task
+	 */
+	public AsyncUrlParser(UrlParser parser, Executor executor, int batchSize) {
+		this(parser, executor, batchSize, DEFAULT_MAX_DRAINERS);
+	}
+
+	/**
+	 * Creates a new AsyncUrlParser
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param parser the parser to parse URIs with
+	 * @param executor the executor to parse URIs on
+	 * @param batchSize the maximum number of URIs parsed by a single task
+	 * @param maxDrainers the maximum number of tasks draining URIs at once, usually the number of threads of the executor
+	 */
+	public AsyncUrlParser(UrlParser parser, Executor executor, int batchSize, int maxDrainers) {
+		if(batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be positive");
+		if(maxDrainers < 1)
+			throw new IllegalArgumentException("Maximum number of drainers must be positive");
+		this.parser = parser;
+		this.executor = executor;
+		this.batchSize = batchSize;
+		this.maxDrainers = maxDrainers;
+	}
+
+	/**
+	 * Parses the provided URI asynchronously.
+	 * The returned stage completes with the {@link UrlParametersMap} of the URI,
+	 * or completes exceptionally with the {@link ParameterParseException} thrown by the parser.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI to parse
+	 * @return a stage that completes with the parameters of the URI
+	 * @see UrlParser#parse(String)
+	 */
+	public CompletionStage<UrlParametersMap> parse(String URI) {
+		PendingParse parse = new PendingParse(URI);
+		pending.add(parse);
+		scheduleDrain();
+		return parse.future;
+	}
+
+	/**
+	 * Parses all of the provided URIs asynchronously, in a single task.
+	 * The returned stage completes exceptionally if any of the URIs can not be parsed.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URIs the URIs to parse
+	 * @return a stage that completes with the parameters of the URIs, in the same order
+	 */
+	public CompletionStage<List<UrlParametersMap>> parseAll(List<String> URIs) {
+		CompletableFuture<List<UrlParametersMap>> future = new CompletableFuture<>();
+		try{
+			executor.execute(() -> {
+				List<UrlParametersMap> results = new ArrayList<>(URIs.size());
+				try{
+					for (String URI : URIs)
+						results.add(parser.parse(URI));
+					future.complete(results);
+				}catch(ParameterParseException | RuntimeException e){
+					future.completeExceptionally(e);
+				}
+			});
+		}catch(RejectedExecutionException e){
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Returns the number of URIs waiting to be parsed
+	 * @return the number of pending URIs
+	 */
+	public int pendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Submits a drain task, unless the maximum number of drain tasks are already queued or running
+	 */
+	private void scheduleDrain() {
+		int running;
+		do{
+			running = drainers.get();
+			if(running >= maxDrainers)
+				return;
+		}while(!drainers.compareAndSet(running, running + 1));
+		try{
+			executor.execute(this::drain);
+		}catch(RejectedExecutionException e){
+			drainers.decrementAndGet();
+			PendingParse parse;
+			while((parse = pending.poll()) != null)
+				parse.future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Parses up to one batch of pending URIs, then hands the rest to a new task.
+	 * The task stops counting as a drainer before it checks for more URIs,
+	 * so a URI queued while every drainer is busy is always picked up by one of them.
+	 */
+	private void drain() {
+		PendingParse parse;
+		for (int i = 0; i < batchSize && (parse = pending.poll()) != null; i++)
+			parse.run(parser);
+		drainers.decrementAndGet();
+		if(!pending.isEmpty())
+			scheduleDrain();
+	}
+
+	private static class PendingParse {
+		private final String URI;
+		private final CompletableFuture<UrlParametersMap> future = new CompletableFuture<>();
+
+		PendingParse(String URI) {
+			this.URI = URI;
+		}
+
+		void run(UrlParser parser) {
+			try{
+				future.complete(parser.parse(URI));
+			}catch(ParameterParseException | RuntimeException e){
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
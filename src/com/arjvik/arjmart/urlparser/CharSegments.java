@@ -0,0 +1,134 @@
+package com.arjvik.arjmart.urlparser;
+
+/**
+ * Checks and converts parameter values directly from a range of characters, without creating Strings or throwing exceptions.
+ * The conversions accept exactly the values accepted by {@link Integer#parseInt(String)} and {@link UrlParser#parseBoolean(String)}.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+final class CharSegments {
+
+	/**
+	 * Returned by {@link #parseInt(CharSequence, int, int)} for values that are not integers
+	 */
+	static final long NOT_AN_INT = Long.MIN_VALUE;
+
+	private static final String[] TRUE_VALUES = {"true", "1", "yes"};
+	private static final String[] FALSE_VALUES = {"false", "0", "no"};
+
+	private CharSegments() {
+	}
+
+	/**
+	 * Checks whether a range of characters equals a String
+	 * @param s the characters
+	 * @param start the start of the range
+	 * @param end the end of the range
+	 * @param value the String to compare to
+	 * @return true if the range equals the String
+	 */
+	static boolean regionEquals(CharSequence s, int start, int end, String value) {
+		if(end - start != value.length())
+			return false;
+		for (int i = start; i < end; i++)
+			if(s.charAt(i) != value.charAt(i - start))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Parses a range of characters as an integer
+	 * @param s the characters
+	 * @param start the start of the range
+	 * @param end the end of the range
+	 * @return the integer, or {@link #NOT_AN_INT} if the range is not an integer
+	 */
+	static long parseInt(CharSequence s, int start, int end) {
+		if(start >= end)
+			return NOT_AN_INT;
+		boolean negative = false;
+		int i = start;
+		char first = s.charAt(i);
+		if(first == '-' || first == '+'){
+			negative = first == '-';
+			if(++i == end)
+				return NOT_AN_INT;
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = Character.digit(s.charAt(i), 10);
+			if(digit < 0)
+				return NOT_AN_INT;
+			value = value * 10 + digit;
+			if(value > (long) Integer.MAX_VALUE + 1)
+				return NOT_AN_INT;
+		}
+		value = negative ? -value : value;
+		return value > Integer.MAX_VALUE ? NOT_AN_INT : value;
+	}
+
+	/**
+	 * Parses a range of characters as a boolean
+	 * @param s the characters
+	 * @param start the start of the range
+	 * @param end the end of the range
+	 * @return 1 for true, 0 for false, or -1 if the range is not a boolean
+	 * @see UrlParser#parseBoolean(String)
+	 */
+	static int parseBoolean(CharSequence s, int start, int end) {
+		for (String value : TRUE_VALUES)
+			if(regionEqualsIgnoreCase(s, start, end, value))
+				return 1;
+		for (String value : FALSE_VALUES)
+			if(regionEqualsIgnoreCase(s, start, end, value))
+				return 0;
+		return -1;
+	}
+
+	/**
+	 * Checks whether a range of characters can be converted to the given type
+	 * @param type the type of the parameter
+	 * @param s the characters
+	 * @param start the start of the range
+	 * @param end the end of the range
+	 * @return true if the range is a valid value of the type
+	 */
+	static boolean accepts(ParameterType type, CharSequence s, int start, int end) {
+		switch(type){
+		case INT:
+			return parseInt(s, start, end) != NOT_AN_INT;
+		case BOOLEAN:
+			return parseBoolean(s, start, end) >= 0;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Converts a range of characters, which must be accepted by {@link #accepts(ParameterType, CharSequence, int, int)}, to the given type
+	 * @param type the type of the parameter
+	 * @param s the characters
+	 * @param start the start of the range
+	 * @param end the end of the range
+	 * @return the converted value
+	 */
+	static Object convert(ParameterType type, CharSequence s, int start, int end) {
+		switch(type){
+		case INT:
+			return (int) parseInt(s, start, end);
+		case BOOLEAN:
+			return parseBoolean(s, start, end) == 1;
+		default:
+			return s.subSequence(start, end).toString();
+		}
+	}
+
+	private static boolean regionEqualsIgnoreCase(CharSequence s, int start, int end, String value) {
+		if(end - start != value.length())
+			return false;
+		for (int i = start; i < end; i++)
+			if(Character.toLowerCase(s.charAt(i)) != value.charAt(i - start))
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,648 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The CompactRouteTable class is an immutable route table for very large route sets, such as one set of routes per tenant.
+ * Instead of one {@link CompiledTemplate} per route, the routes are stored as a segment trie in a single off-heap {@link ByteBuffer}.
+ * Trie nodes are addressed by int offsets, and literal segments, parameter names and route names are stored once in a shared string pool.
+ * Matching walks the trie one segment at a time, so its cost depends on the depth of the URI rather than the number of routes.
+ * Nodes with few literal children keep them sorted for a binary search, while nodes with many keep them in a hash table.
+ * Its usage is as follows:
+ * <br>
+ * <pre>
+ * CompactRouteTable.Builder builder = new CompactRouteTable.Builder();
+ * builder.add("tenant1.item", "/tenants/tenant1/items/{INT:itemID}");
+ * ...
+ * CompactRouteTable routes = builder.build();
+ * RouteMatch match = routes.route(request.getURI()); // or request path
+ * </pre>
+ * Routes may also be restricted to an {@link HttpMethod} and a virtual host. Hosts are edges at the root of the trie,
+ * and the routes of each method are stored by ordinal where their path ends, so a request is dispatched in one traversal,
+ * and a path that only matches routes for other methods is reported as {@code 405 Method Not Allowed}:
+ * <br>
+ * <pre>
+ * builder.add("getItem", HttpMethod.GET, "shop.example.com", "/items/{INT:itemID}");
+ * ...
+ * RouteMatch match = routes.route(HttpMethod.of(request.getMethod()), request.getHost(), request.getPath());
+ * if(match != null &amp;&amp; match.isMethodNotAllowed())
+ *     ... // respond with 405 and an Allow header of match.getAllowedMethods()
+ * </pre>
+ * Like {@link UrlRouter}, routes are matched strictly and typed placeholders only match values of their type.
+ * Where several routes could match, literal segments are preferred over placeholders, and placeholders are tried in the order they were added.
+ * Routes for a specific host are preferred over routes for any host, and routes for a specific method over routes for any method.
+ * Only delimiters that match single characters are supported.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see UrlRouter
+ */
+public final class CompactRouteTable {
+
+	private static final int NODE_HEADER = 16;
+	private static final int LITERAL_EDGE = 8;
+	private static final int HASHED_LITERAL_EDGE = 12;
+	private static final int PARAMETER_EDGE = 12;
+	private static final int HASH_THRESHOLD = 8;
+	private static final int LATIN1 = 0x80000000;
+	private static final int MAX_DEPTH = 64;
+	private static final ParameterType[] TYPES = ParameterType.values();
+	private static final HttpMethod[] METHODS = HttpMethod.values();
+	private static final String[] DEFAULT_PORTS = {":80", ":443"};
+
+	private final DelimiterMatcher delimiter;
+	private final ByteBuffer buffer;
+	private final int routeCount;
+	private final int root;
+	private final int hosts;
+
+	private CompactRouteTable(DelimiterMatcher delimiter, ByteBuffer buffer, int routeCount, int root, int hosts) {
+		this.delimiter = delimiter;
+		this.buffer = buffer;
+		this.routeCount = routeCount;
+		this.root = root;
+		this.hosts = hosts;
+	}
+
+	/**
+	 * Returns the number of routes in the table
+	 * @return the number of routes
+	 */
+	public int routeCount() {
+		return routeCount;
+	}
+
+	/**
+	 * Returns the size of the table, including its string pool
+	 * @return the size of the table in bytes
+	 */
+	public int sizeInBytes() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * Returns the estimated size of the table, including both its off-heap buffer and the objects on the heap that refer to it.
+	 * Sizes assume a 64-bit JVM with compressed references.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return the estimated retained size in bytes
+	 * @see #sizeInBytes()
+	 * @see AllocationSampler
+	 */
+	public long estimateRetainedBytes() {
+		HeapEstimate estimate = new HeapEstimate();
+		estimate.object(this, 2 * HeapEstimate.REFERENCE + 3 * 4);
+		delimiter.addTo(estimate);
+		estimate.object(buffer, 64); //the fields of a direct ByteBuffer and its cleaner
+		estimate.offHeap(buffer.capacity());
+		return estimate.bytes();
+	}
+
+	/**
+	 * Returns the average size of a route in the table
+	 * @return the size of the table divided by the number of routes
+	 */
+	public double bytesPerRoute() {
+		return routeCount == 0 ? 0 : (double) buffer.capacity() / routeCount;
+	}
+
+	/**
+	 * Returns the name of a route
+	 * @param route the index of the route, in the order the routes were added
+	 * @return the name of the route
+	 */
+	public String getRouteName(int route) {
+		if(route < 0 || route >= routeCount)
+			throw new IndexOutOfBoundsException("Route "+route+" does not exist");
+		return poolString(buffer.getInt(route * 4));
+	}
+
+	/**
+	 * Finds the route for any method and any host matching the provided URI, without allocating
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI to match
+	 * @return the index of the matching route, or -1 if no route matches
+	 */
+	public int match(CharSequence URI) {
+		int end = delimiter.trimmedLength(URI);
+		return Math.max(-1, match(root, null, URI, firstStart(end), end, null, 0));
+	}
+
+	/**
+	 * Finds the route matching the provided request, without allocating.
+	 * If routes match the path but not the method, the result is a negative number other than -1,
+	 * which can be passed to {@link #getAllowedMethods(int)}.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param method the method of the request, or null to only match routes for any method
+	 * @param host the host of the request, or null to only match routes for any host. Hosts are matched ignoring case and a default port of {@code :80} or {@code :443}.
+	 * @param path the path of the request
+	 * @return the index of the matching route, -1 if no route matches the path, or less than -1 if no route allows the method
+	 */
+	public int match(HttpMethod method, CharSequence host, CharSequence path) {
+		return match(method, host, path, null);
+	}
+
+	/**
+	 * Returns the methods allowed for a path that matched routes, but not the method of the request
+	 * @param result the result of {@link #match(HttpMethod, CharSequence, CharSequence)}
+	 * @return the allowed methods, or an empty set if the result is a route or -1
+	 */
+	public static Set<HttpMethod> getAllowedMethods(int result) {
+		Set<HttpMethod> methods = EnumSet.noneOf(HttpMethod.class);
+		if(result < -1)
+			for (HttpMethod method : METHODS)
+				if((~result & 1 << method.ordinal()) != 0)
+					methods.add(method);
+		return methods;
+	}
+
+	private int match(HttpMethod method, CharSequence host, CharSequence path, int[] parameters) {
+		int end = delimiter.trimmedLength(path);
+		int allowed = 0;
+		if(host != null && hosts != 0){
+			int hostRoot = findLiteral(hosts, host, 0, hostEnd(host), true);
+			if(hostRoot != 0){
+				int route = match(hostRoot, method, path, firstStart(end), end, parameters, 0);
+				if(route >= 0)
+					return route;
+				allowed = ~route;
+			}
+		}
+		int route = match(root, method, path, firstStart(end), end, parameters, 0);
+		return route >= 0 ? route : ~(allowed | ~route);
+	}
+
+	/**
+	 * Returns where matching starts in a path of the given trimmed length.
+	 * A path that is empty or made only of delimiters has no segments, so it is matched by the root node,
+	 * just as {@link UrlParser#split(String, String)} gives it no segments.
+	 * @param end the length of the path, without trailing delimiters
+	 * @return the start of the first segment, or a value greater than end if the path has no segments
+	 */
+	private static int firstStart(int end) {
+		return end == 0 ? 1 : 0;
+	}
+
+	/**
+	 * Routes the provided URI, converting its parameters.
+	 * Since the table does not keep a {@link CompiledTemplate} per route, {@link RouteMatch#getTemplate()} returns null.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI to route
+	 * @return the match, or null if no route matches the URI
+	 */
+	public RouteMatch route(CharSequence URI) {
+		int[] parameters = new int[MAX_DEPTH * 2];
+		int end = delimiter.trimmedLength(URI);
+		int route = match(root, null, URI, firstStart(end), end, parameters, 0);
+		return route < 0 ? null : toRouteMatch(route, URI, parameters);
+	}
+
+	/**
+	 * Routes the provided request, converting its parameters.
+	 * Since the table does not keep a {@link CompiledTemplate} per route, {@link RouteMatch#getTemplate()} returns null.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param method the method of the request, or null to only match routes for any method
+	 * @param host the host of the request, or null to only match routes for any host. Hosts are matched ignoring case and a default port of {@code :80} or {@code :443}.
+	 * @param path the path of the request
+	 * @return the match, a match for which {@link RouteMatch#isMethodNotAllowed()} is true if routes matched the path but not the method,
+	 * or null if no route matches the path
+	 */
+	public RouteMatch route(HttpMethod method, CharSequence host, CharSequence path) {
+		int[] parameters = new int[MAX_DEPTH * 2];
+		int route = match(method, host, path, parameters);
+		if(route == -1)
+			return null;
+		return route < 0 ? new RouteMatch(getAllowedMethods(route)) : toRouteMatch(route, path, parameters);
+	}
+
+	private RouteMatch toRouteMatch(int route, CharSequence URI, int[] parameters) {
+		int end = delimiter.trimmedLength(URI);
+		UrlParametersMap params = new UrlParametersMap();
+		for (int i = 0; i < parameters.length && parameters[i] != 0; i += 2) {
+			int edge = parameters[i];
+			int start = parameters[i + 1];
+			ParameterType type = TYPES[buffer.getInt(edge)];
+			int segmentEnd = delimiter.segmentEnd(URI, start, end);
+			params.addParameter(poolString(buffer.getInt(edge + 4)), type, CharSegments.convert(type, URI, start, segmentEnd));
+		}
+		return new RouteMatch(getRouteName(route), null, params);
+	}
+
+	/**
+	 * Matches the segment starting at the given index against the children of a node, backtracking on failure
+	 * @param node the offset of the node
+	 * @param method the method of the request, or null
+	 * @param URI the URI
+	 * @param start the start of the segment, or a value greater than end once every segment has been matched
+	 * @param end the end of the URI, without trailing delimiters
+	 * @param path if not null, receives the parameter edges taken and the start of their segments
+	 * @param depth the number of parameter edges taken so far
+	 * @return the index of the matching route, or the complement of the methods allowed by routes matching the URI
+	 */
+	private int match(int node, HttpMethod method, CharSequence URI, int start, int end, int[] path, int depth) {
+		if(start > end)
+			return accept(node, method);
+		int segmentEnd = delimiter.segmentEnd(URI, start, end);
+		int literals = buffer.getInt(node + 4);
+		int parameters = buffer.getInt(node + 8);
+		int hashSlots = buffer.getInt(node + 12);
+		int edges = node + NODE_HEADER;
+		int child = hashSlots == 0 ? findSorted(edges, literals, URI, start, segmentEnd, false) : findHashed(edges, hashSlots, URI, start, segmentEnd, false);
+		int allowed = 0;
+		if(child != 0){
+			int route = match(child, method, URI, segmentEnd + 1, end, path, depth);
+			if(route >= 0)
+				return route;
+			allowed |= ~route;
+		}
+		if(path != null && depth * 2 >= path.length)
+			return ~allowed;
+		edges += hashSlots == 0 ? literals * LITERAL_EDGE : hashSlots * HASHED_LITERAL_EDGE;
+		for (int i = 0; i < parameters; i++) {
+			int edge = edges + i * PARAMETER_EDGE;
+			if(!CharSegments.accepts(TYPES[buffer.getInt(edge)], URI, start, segmentEnd))
+				continue;
+			int route = match(buffer.getInt(edge + 8), method, URI, segmentEnd + 1, end, path, depth + 1);
+			if(route >= 0){
+				if(path != null){
+					path[depth * 2] = edge;
+					path[depth * 2 + 1] = start;
+				}
+				return route;
+			}
+			allowed |= ~route;
+		}
+		return ~allowed;
+	}
+
+	/**
+	 * Finds the route of a node whose path matched the URI.
+	 * A node with routes for specific methods points to a block holding its route for any method,
+	 * a mask of its methods, and its route for each method in the mask, by ordinal.
+	 * @return the index of the route, or the complement of the methods allowed by the node
+	 */
+	private int accept(int node, HttpMethod method) {
+		int route = buffer.getInt(node);
+		if(route >= -1)
+			return route;
+		int block = -route;
+		int mask = buffer.getInt(block + 4);
+		if(method != null && (mask & 1 << method.ordinal()) != 0)
+			return buffer.getInt(block + 8 + Integer.bitCount(mask & (1 << method.ordinal()) - 1) * 4);
+		int any = buffer.getInt(block);
+		return any >= 0 ? any : ~mask;
+	}
+
+	private int findLiteral(int node, CharSequence s, int start, int end, boolean foldCase) {
+		int hashSlots = buffer.getInt(node + 12);
+		int edges = node + NODE_HEADER;
+		return hashSlots == 0 ? findSorted(edges, buffer.getInt(node + 4), s, start, end, foldCase) : findHashed(edges, hashSlots, s, start, end, foldCase);
+	}
+
+	/**
+	 * Returns the length of a host without a default port of {@code :80} or {@code :443}
+	 */
+	private static int hostEnd(CharSequence host) {
+		int length = host.length();
+		for (String port : DEFAULT_PORTS)
+			if(length > port.length() && CharSegments.regionEquals(host, length - port.length(), length, port))
+				return length - port.length();
+		return length;
+	}
+
+	/**
+	 * Normalizes a host as it is matched: lowercase, and without a default port
+	 */
+	static String normalizeHost(String host) {
+		int end = hostEnd(host);
+		StringBuilder normalized = new StringBuilder(end);
+		for (int i = 0; i < end; i++)
+			normalized.append(Character.toLowerCase(host.charAt(i)));
+		return normalized.toString();
+	}
+
+	private int findSorted(int edges, int literals, CharSequence URI, int start, int end, boolean foldCase) {
+		int low = 0, high = literals - 1;
+		while(low <= high){
+			int mid = (low + high) >>> 1;
+			int edge = edges + mid * LITERAL_EDGE;
+			int comparison = comparePoolString(buffer.getInt(edge), URI, start, end, foldCase);
+			if(comparison < 0)
+				low = mid + 1;
+			else if(comparison > 0)
+				high = mid - 1;
+			else
+				return buffer.getInt(edge + 4);
+		}
+		return 0;
+	}
+
+	private int findHashed(int edges, int slots, CharSequence URI, int start, int end, boolean foldCase) {
+		int hash = 0;
+		for (int i = start; i < end; i++)
+			hash = 31 * hash + (foldCase ? Character.toLowerCase(URI.charAt(i)) : URI.charAt(i));
+		for (int slot = mix(hash) & (slots - 1);; slot = (slot + 1) & (slots - 1)) {
+			int edge = edges + slot * HASHED_LITERAL_EDGE;
+			int literal = buffer.getInt(edge + 4);
+			if(literal < 0)
+				return 0;
+			if(buffer.getInt(edge) == hash && comparePoolString(literal, URI, start, end, foldCase) == 0)
+				return buffer.getInt(edge + 8);
+		}
+	}
+
+	private static int mix(int hash) {
+		int x = hash * 0x9E3779B9;
+		return x ^ (x >>> 16);
+	}
+
+	private int comparePoolString(int offset, CharSequence s, int start, int end, boolean foldCase) {
+		int header = buffer.getInt(offset);
+		boolean latin1 = (header & LATIN1) != 0;
+		int length = header & ~LATIN1;
+		int data = offset + 4;
+		int segmentLength = end - start;
+		for (int i = 0; i < length && i < segmentLength; i++) {
+			char c = latin1 ? (char) (buffer.get(data + i) & 0xFF) : buffer.getChar(data + i * 2);
+			char other = foldCase ? Character.toLowerCase(s.charAt(start + i)) : s.charAt(start + i);
+			if(c != other)
+				return c - other;
+		}
+		return length - segmentLength;
+	}
+
+	private String poolString(int offset) {
+		int header = buffer.getInt(offset);
+		boolean latin1 = (header & LATIN1) != 0;
+		int length = header & ~LATIN1;
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = latin1 ? (char) (buffer.get(offset + 4 + i) & 0xFF) : buffer.getChar(offset + 4 + i * 2);
+		return new String(chars);
+	}
+
+	/**
+	 * The Builder class collects routes for a {@link CompactRouteTable}.
+	 * The routes are kept on the heap only until {@link #build()} is called.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 */
+	public static final class Builder {
+
+		private final DelimiterMatcher delimiter;
+		private final BuilderNode root = new BuilderNode();
+		private final BuilderNode hosts = new BuilderNode();
+		private final List<String> routeNames = new ArrayList<>();
+
+		/**
+		 * Creates a new Builder with default delimiter of {@code [/\\\\]}
+		 */
+		public Builder() {
+			this("[/\\\\]");
+		}
+
+		/**
+		 * Creates a new Builder with the given delimiter
+		 * @param delimiter the delimiter, in standard regex form, which must match single characters
+		 */
+		public Builder(String delimiter) {
+			this.delimiter = new DelimiterMatcher(delimiter);
+		}
+
+		/**
+		 * Adds a route for any method and any host to the table
+		 * @param name the name of the route
+		 * @param template the template of the route
+		 * @return this Builder
+		 * @throws IllegalArgumentException if the template is malformed or has the same segments as a route already added
+		 * @see UrlParser#setTemplate(String)
+		 */
+		public Builder add(String name, String template) {
+			return add(name, null, null, template);
+		}
+
+		/**
+		 * Adds a route to the table.
+		 * The template <code>/</code> is the root route, and an empty template duplicates it, since neither has any segments.
+		 * @author Arjun Vikram
+		 * @since 1.1.0
+		 * @param name the name of the route
+		 * @param method the method of the route, or null for any method
+		 * @param host the host of the route, or null for any host. Hosts are matched ignoring case and a default port of {@code :80} or {@code :443}.
+		 * @param template the template of the route
+		 * @return this Builder
+		 * @throws IllegalArgumentException if the template is malformed or has the same segments, method and host as a route already added
+		 * @see UrlParser#setTemplate(String)
+		 */
+		public Builder add(String name, HttpMethod method, String host, String template) {
+			CompiledTemplate compiled = CompiledTemplate.compile(template, delimiter.getDelimiter());
+			if(compiled.segmentCount() > MAX_DEPTH)
+				throw new IllegalArgumentException("Template "+template+" has more than "+MAX_DEPTH+" segments");
+			BuilderNode node = root;
+			if(host != null){
+				String normalized = normalizeHost(host);
+				node = hosts.literals.get(normalized);
+				if(node == null)
+					hosts.literals.put(normalized, node = new BuilderNode());
+			}
+			for (int i = 0; i < compiled.segmentCount(); i++) {
+				if(!compiled.isPlaceholder(i)){
+					BuilderNode child = node.literals.get(compiled.getSegment(i));
+					if(child == null)
+						node.literals.put(compiled.getSegment(i), child = new BuilderNode());
+					node = child;
+					continue;
+				}
+				if(compiled.getType(i) == null)
+					throw new IllegalArgumentException("Invalid placeholder "+compiled.getSegment(i));
+				BuilderNode child = null;
+				for (BuilderParameter parameter : node.parameters)
+					if(parameter.type == compiled.getType(i) && parameter.name.equals(compiled.getName(i)))
+						child = parameter.child;
+				if(child == null)
+					node.parameters.add(new BuilderParameter(compiled.getType(i), compiled.getName(i), child = new BuilderNode()));
+				node = child;
+			}
+			if(method != null && node.methodRoutes == null){
+				node.methodRoutes = new int[METHODS.length];
+				Arrays.fill(node.methodRoutes, -1);
+			}
+			int existing = method == null ? node.route : node.methodRoutes[method.ordinal()];
+			if(existing >= 0)
+				throw new IllegalArgumentException("Template "+template+" duplicates route "+routeNames.get(existing));
+			if(method == null)
+				node.route = routeNames.size();
+			else
+				node.methodRoutes[method.ordinal()] = routeNames.size();
+			routeNames.add(name);
+			return this;
+		}
+
+		/**
+		 * Builds the table, laying out the trie and string pool in an off-heap buffer
+		 * @return the table
+		 */
+		public CompactRouteTable build() {
+			Map<String,Integer> pool = new HashMap<>();
+			int size = routeNames.size() * 4;
+			for (String name : routeNames)
+				size = intern(name, pool, size);
+			size = layout(root, pool, size);
+			if(!hosts.literals.isEmpty())
+				size = layout(hosts, pool, size);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+			for (int i = 0; i < routeNames.size(); i++)
+				buffer.putInt(i * 4, pool.get(routeNames.get(i)));
+			for (Map.Entry<String,Integer> entry : pool.entrySet())
+				writeString(buffer, entry.getValue(), entry.getKey());
+			write(root, buffer, pool);
+			if(!hosts.literals.isEmpty())
+				write(hosts, buffer, pool);
+			return new CompactRouteTable(delimiter, buffer, routeNames.size(), root.offset, hosts.literals.isEmpty() ? 0 : hosts.offset);
+		}
+
+		private static int intern(String s, Map<String,Integer> pool, int end) {
+			if(pool.containsKey(s))
+				return end;
+			pool.put(s, end);
+			return end + 4 + (isLatin1(s) ? s.length() : s.length() * 2);
+		}
+
+		private static int hashSlots(BuilderNode node) {
+			//at most half full, so that probes stay short and always end at an empty slot
+			return node.literals.size() <= HASH_THRESHOLD ? 0 : Integer.highestOneBit(node.literals.size() * 4 - 1);
+		}
+
+		private static int layout(BuilderNode node, Map<String,Integer> pool, int end) {
+			node.offset = end;
+			int hashSlots = hashSlots(node);
+			end += NODE_HEADER + (hashSlots == 0 ? node.literals.size() * LITERAL_EDGE : hashSlots * HASHED_LITERAL_EDGE)
+					+ node.parameters.size() * PARAMETER_EDGE;
+			int methods = node.methodMask();
+			if(methods != 0)
+				end += 8 + Integer.bitCount(methods) * 4;
+			for (Map.Entry<String,BuilderNode> literal : node.literals.entrySet()) {
+				end = intern(literal.getKey(), pool, end);
+				end = layout(literal.getValue(), pool, end);
+			}
+			for (BuilderParameter parameter : node.parameters) {
+				end = intern(parameter.name, pool, end);
+				end = layout(parameter.child, pool, end);
+			}
+			return end;
+		}
+
+		private static void write(BuilderNode node, ByteBuffer buffer, Map<String,Integer> pool) {
+			int edge = node.offset;
+			int hashSlots = hashSlots(node);
+			int methods = node.methodMask();
+			if(methods != 0){
+				int block = node.offset + NODE_HEADER + (hashSlots == 0 ? node.literals.size() * LITERAL_EDGE : hashSlots * HASHED_LITERAL_EDGE)
+						+ node.parameters.size() * PARAMETER_EDGE;
+				buffer.putInt(edge, -block);
+				buffer.putInt(block, node.route);
+				buffer.putInt(block + 4, methods);
+				block += 8;
+				for (int route : node.methodRoutes) {
+					if(route >= 0){
+						buffer.putInt(block, route);
+						block += 4;
+					}
+				}
+			}else{
+				buffer.putInt(edge, node.route);
+			}
+			buffer.putInt(edge + 4, node.literals.size());
+			buffer.putInt(edge + 8, node.parameters.size());
+			buffer.putInt(edge + 12, hashSlots);
+			edge += NODE_HEADER;
+			if(hashSlots == 0){
+				for (Map.Entry<String,BuilderNode> literal : node.literals.entrySet()) {
+					buffer.putInt(edge, pool.get(literal.getKey()));
+					buffer.putInt(edge + 4, literal.getValue().offset);
+					edge += LITERAL_EDGE;
+				}
+			}else{
+				for (int slot = 0; slot < hashSlots; slot++)
+					buffer.putInt(edge + slot * HASHED_LITERAL_EDGE + 4, -1);
+				for (Map.Entry<String,BuilderNode> literal : node.literals.entrySet()) {
+					int hash = literal.getKey().hashCode();
+					int slot = mix(hash) & (hashSlots - 1);
+					while(buffer.getInt(edge + slot * HASHED_LITERAL_EDGE + 4) >= 0)
+						slot = (slot + 1) & (hashSlots - 1);
+					buffer.putInt(edge + slot * HASHED_LITERAL_EDGE, hash);
+					buffer.putInt(edge + slot * HASHED_LITERAL_EDGE + 4, pool.get(literal.getKey()));
+					buffer.putInt(edge + slot * HASHED_LITERAL_EDGE + 8, literal.getValue().offset);
+				}
+				edge += hashSlots * HASHED_LITERAL_EDGE;
+			}
+			for (BuilderNode child : node.literals.values())
+				write(child, buffer, pool);
+			for (BuilderParameter parameter : node.parameters) {
+				buffer.putInt(edge, parameter.type.ordinal());
+				buffer.putInt(edge + 4, pool.get(parameter.name));
+				buffer.putInt(edge + 8, parameter.child.offset);
+				edge += PARAMETER_EDGE;
+			}
+			for (BuilderParameter parameter : node.parameters)
+				write(parameter.child, buffer, pool);
+		}
+
+		private static void writeString(ByteBuffer buffer, int offset, String s) {
+			boolean latin1 = isLatin1(s);
+			buffer.putInt(offset, latin1 ? s.length() | LATIN1 : s.length());
+			for (int i = 0; i < s.length(); i++) {
+				if(latin1)
+					buffer.put(offset + 4 + i, (byte) s.charAt(i));
+				else
+					buffer.putChar(offset + 4 + i * 2, s.charAt(i));
+			}
+		}
+
+		private static boolean isLatin1(String s) {
+			for (int i = 0; i < s.length(); i++)
+				if(s.charAt(i) > 0xFF)
+					return false;
+			return true;
+		}
+	}
+
+	private static final class BuilderNode {
+		final TreeMap<String,BuilderNode> literals = new TreeMap<>();
+		final List<BuilderParameter> parameters = new ArrayList<>(0);
+		int[] methodRoutes;
+		int route = -1;
+		int offset;
+
+		int methodMask() {
+			int mask = 0;
+			for (int i = 0; methodRoutes != null && i < methodRoutes.length; i++)
+				if(methodRoutes[i] >= 0)
+					mask |= 1 << i;
+			return mask;
+		}
+	}
+
+	private static final class BuilderParameter {
+		final ParameterType type;
+		final String name;
+		final BuilderNode child;
+
+		BuilderParameter(ParameterType type, String name, BuilderNode child) {
+			this.type = type;
+			this.name = name;
+			this.child = child;
+		}
+	}
+}
@@ -0,0 +1,768 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The CompiledTemplate class is the immutable, pre-analyzed form of a template.
+ * It is created once when the template is set, so that parsing does not have to re-split or re-analyze the template.
+ * Every parameter of the template is given a slot and a {@link ParamKey}, and parameter names are looked up through
+ * a perfect hash built at compile time. Its usage is as follows:
+ * <br>
+ * <pre>
+ * CompiledTemplate compiled = parser.getCompiledTemplate();
+ * ParamKey&lt;Integer&gt; itemID = compiled.intKey("itemID");
+ * </pre>
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see UrlParser#getCompiledTemplate()
+ */
+public final class CompiledTemplate {
+
+	private static final int PERFECT_HASH_ATTEMPTS = 64;
+
+	private static final String[] NO_SEGMENTS = new String[0];
+
+	private static final byte LITERAL = 0;
+	private static final byte PLACEHOLDER = 1;
+	private static final byte MALFORMED_PLACEHOLDER = 2;
+
+	private final String template;
+	private final String delimiter;
+	private final String[] segments;
+	private final boolean[] placeholders;
+	private final ParameterType[] types;
+	private final String[] names;
+	private final int[] slots;
+	private final ParamKey<?>[] keys;
+	private final int[] table;
+	private final int multiplier;
+	private DelimiterMatcher delimiterMatcher;
+
+	private CompiledTemplate(String template, String delimiter, String[] segments) {
+		this.template = template;
+		this.delimiter = delimiter;
+		this.segments = segments;
+		placeholders = new boolean[segments.length];
+		types = new ParameterType[segments.length];
+		names = new String[segments.length];
+		slots = new int[segments.length];
+		List<ParamKey<?>> keyList = new ArrayList<>();
+		for (int i = 0; i < segments.length; i++) {
+			slots[i] = -1;
+			placeholders[i] = UrlParser.isPlaceholder(segments[i]);
+			if(!placeholders[i])
+				continue;
+			String[] typeAndName = segments[i].substring(1, segments[i].length() - 1).split(":");
+			if(typeAndName.length != 2 || !isType(typeAndName[0]))
+				continue; //malformed placeholders are reported by UrlParser.parseParameter at parse time
+			types[i] = ParameterType.valueOf(typeAndName[0]);
+			names[i] = typeAndName[1].intern();
+			for (ParamKey<?> key : keyList)
+				if(key.getName().equals(names[i]))
+					slots[i] = key.getSlot();
+			if(slots[i] < 0){
+				slots[i] = keyList.size();
+				keyList.add(new ParamKey<>(names[i], types[i], slots[i]));
+			}
+		}
+		keys = keyList.toArray(new ParamKey<?>[keyList.size()]);
+		int[] hashTable = null;
+		int hashMultiplier = 0;
+		for (int size = tableSize(keys.length); hashTable == null && size <= 4 * tableSize(keys.length); size *= 2) {
+			int candidate = 0x9E3779B9;
+			for (int attempt = 0; hashTable == null && attempt < PERFECT_HASH_ATTEMPTS; attempt++) {
+				hashTable = buildTable(size, candidate, false);
+				hashMultiplier = candidate;
+				candidate = (candidate * 0x2C1B3C6D + 0x297A2D39) | 1;
+			}
+		}
+		if(hashTable == null){
+			//names with equal hash codes can not be perfectly hashed, so fall back to probing
+			hashMultiplier = 0x9E3779B9;
+			hashTable = buildTable(tableSize(keys.length), hashMultiplier, true);
+		}
+		table = hashTable;
+		multiplier = hashMultiplier;
+	}
+
+	private CompiledTemplate(String template, String delimiter, String[] segments, boolean[] placeholders, ParameterType[] types,
+			String[] names, int[] slots, int keyCount, int[] table, int multiplier) {
+		this.template = template;
+		this.delimiter = delimiter;
+		this.segments = segments;
+		this.placeholders = placeholders;
+		this.types = types;
+		this.names = names;
+		this.slots = slots;
+		this.table = table;
+		this.multiplier = multiplier;
+		keys = new ParamKey<?>[keyCount];
+		for (int i = 0; i < segments.length; i++)
+			if(slots[i] >= 0 && keys[slots[i]] == null)
+				keys[slots[i]] = new ParamKey<>(names[i], types[i], slots[i]);
+	}
+
+	/**
+	 * Compiles the given template, splitting it by the given delimiter
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param template the template to compile
+	 * @param delimiter the delimiter, in standard regex form
+	 * @return the compiled template
+	 * @see UrlParser#setTemplate(String)
+	 */
+	public static CompiledTemplate compile(String template, String delimiter) {
+		return new CompiledTemplate(template, delimiter, segmentsOf(template.split(delimiter)));
+	}
+
+	/**
+	 * Returns the segments of a template or URI split by its delimiter.
+	 * One that is empty or made only of delimiters, such as <code>/</code>, has no segments,
+	 * although {@link String#split(String)} leaves a single empty segment once its last delimiter is trimmed.
+	 * @param broken the template or URI, split by the delimiter
+	 * @return the segments, with no segments for the root
+	 */
+	static String[] segmentsOf(String[] broken) {
+		return broken.length == 1 && broken[0].isEmpty() ? NO_SEGMENTS : broken;
+	}
+
+	/**
+	 * Writes the compiled template in a compact binary form, which can be read back without re-analyzing the template
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param out the output to write to
+	 * @throws IOException if the output can not be written to
+	 * @see #readFrom(DataInput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeUTF(template);
+		out.writeUTF(delimiter);
+		out.writeInt(segments.length);
+		for (int i = 0; i < segments.length; i++) {
+			if(!placeholders[i]){
+				out.writeByte(LITERAL);
+				out.writeUTF(segments[i]);
+			}else if(types[i] == null){
+				out.writeByte(MALFORMED_PLACEHOLDER);
+				out.writeUTF(segments[i]);
+			}else{
+				out.writeByte(PLACEHOLDER);
+				out.writeUTF(segments[i]);
+				out.writeByte(types[i].ordinal());
+				out.writeUTF(names[i]);
+				out.writeInt(slots[i]);
+			}
+		}
+		out.writeInt(keys.length);
+		out.writeInt(multiplier);
+		out.writeInt(table.length);
+		for (int slot : table)
+			out.writeInt(slot);
+	}
+
+	/**
+	 * Reads a compiled template written by {@link #writeTo(DataOutput)}.
+	 * The template is not split or analyzed again; its segments, slots and perfect hash are read as they were written.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param in the input to read from
+	 * @return the compiled template
+	 * @throws IOException if the input can not be read, or does not hold a compiled template
+	 */
+	public static CompiledTemplate readFrom(DataInput in) throws IOException {
+		String template = in.readUTF();
+		String delimiter = in.readUTF();
+		int segmentCount = in.readInt();
+		if(segmentCount < 0)
+			throw new IOException("Invalid segment count "+segmentCount);
+		String[] segments = new String[segmentCount];
+		boolean[] placeholders = new boolean[segmentCount];
+		ParameterType[] types = new ParameterType[segmentCount];
+		String[] names = new String[segmentCount];
+		int[] slots = new int[segmentCount];
+		ParameterType[] allTypes = ParameterType.values();
+		for (int i = 0; i < segmentCount; i++) {
+			byte kind = in.readByte();
+			segments[i] = in.readUTF();
+			slots[i] = -1;
+			placeholders[i] = kind != LITERAL;
+			if(kind == PLACEHOLDER){
+				int type = in.readByte();
+				if(type < 0 || type >= allTypes.length)
+					throw new IOException("Invalid parameter type "+type);
+				types[i] = allTypes[type];
+				names[i] = in.readUTF().intern();
+				slots[i] = in.readInt();
+			}else if(kind != LITERAL && kind != MALFORMED_PLACEHOLDER){
+				throw new IOException("Invalid segment kind "+kind);
+			}
+		}
+		int keyCount = in.readInt();
+		if(keyCount < 0 || keyCount > segmentCount)
+			throw new IOException("Invalid slot count "+keyCount);
+		int multiplier = in.readInt();
+		int tableSize = in.readInt();
+		if(Integer.bitCount(tableSize) != 1 || tableSize < 0)
+			throw new IOException("Invalid hash table size "+tableSize);
+		int[] table = new int[tableSize];
+		boolean hasEmpty = false;
+		for (int i = 0; i < table.length; i++) {
+			table[i] = in.readInt();
+			if(table[i] < -1 || table[i] >= keyCount)
+				throw new IOException("Invalid slot "+table[i]);
+			hasEmpty |= table[i] == -1;
+		}
+		if(!hasEmpty)
+			throw new IOException("Hash table has no empty entry");
+		boolean[] slotUsed = new boolean[keyCount];
+		for (int i = 0; i < segmentCount; i++) {
+			if(types[i] == null)
+				continue;
+			if(slots[i] < 0 || slots[i] >= keyCount)
+				throw new IOException("Invalid slot "+slots[i]);
+			slotUsed[slots[i]] = true;
+		}
+		for (int slot = 0; slot < keyCount; slot++)
+			if(!slotUsed[slot])
+				throw new IOException("Slot "+slot+" has no parameter");
+		CompiledTemplate compiled = new CompiledTemplate(template, delimiter, segments, placeholders, types, names, slots, keyCount, table, multiplier);
+		compiled.validate();
+		return compiled;
+	}
+
+	/**
+	 * Checks that every placeholder has the name of the key of its slot, and that the perfect hash finds every key.
+	 * Types are not compared, since a name may be repeated with different types, as in <code>/{INT:a}/{STRING:a}</code>.
+	 * @throws IOException if the slots or the perfect hash are inconsistent
+	 */
+	private void validate() throws IOException {
+		for (int i = 0; i < segments.length; i++) {
+			if(slots[i] < 0)
+				continue;
+			if(!keys[slots[i]].getName().equals(names[i]))
+				throw new IOException("Parameter "+names[i]+" does not match slot "+slots[i]);
+		}
+		//the table has an empty entry, which ends every probe
+		for (ParamKey<?> key : keys)
+			if(slotOf(key.getName()) != key.getSlot())
+				throw new IOException("Invalid hash table for parameter "+key.getName());
+	}
+
+	private static boolean isType(String type) {
+		for (ParameterType parameterType : ParameterType.values())
+			if(parameterType.name().equals(type))
+				return true;
+		return false;
+	}
+
+	private static int tableSize(int count) {
+		//at least twice the number of names, so that the table always has an empty entry to end a probe
+		return Integer.highestOneBit(Math.max(1, count) * 4 - 1);
+	}
+
+	private static int index(int hash, int multiplier, int mask) {
+		int x = hash * multiplier;
+		return (x ^ (x >>> 15)) & mask;
+	}
+
+	private int[] buildTable(int size, int multiplier, boolean probe) {
+		int[] candidate = new int[size];
+		Arrays.fill(candidate, -1);
+		for (ParamKey<?> key : keys) {
+			int i = index(key.getName().hashCode(), multiplier, size - 1);
+			while(candidate[i] >= 0){
+				if(!probe)
+					return null;
+				i = (i + 1) & (size - 1);
+			}
+			candidate[i] = key.getSlot();
+		}
+		return candidate;
+	}
+
+	/**
+	 * Checks that the broken URI has the same shape as the template, stopping at the first mismatch.
+	 * Literal segments must be equal, and the URI must have as many segments as the template.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param brokenURI the URI, split by the delimiter
+	 * @throws TemplateMismatchException if the URI does not match the template
+	 */
+	void checkSegments(String[] brokenURI) throws TemplateMismatchException {
+		brokenURI = segmentsOf(brokenURI);
+		for (int i = 0; i < segments.length; i++) {
+			if(i >= brokenURI.length)
+				throw new TemplateMismatchException("URI is missing segment "+i+" (expected \""+segments[i]+"\")",null,i);
+			if(!placeholders[i] && !segments[i].equals(brokenURI[i]))
+				throw new TemplateMismatchException("Segment \""+brokenURI[i]+"\" does not match \""+segments[i]+"\"",brokenURI[i],i);
+		}
+		if(brokenURI.length > segments.length)
+			throw new TemplateMismatchException("URI has extra segment \""+brokenURI[segments.length]+"\"",brokenURI[segments.length],segments.length);
+	}
+
+	/**
+	 * Checks whether the broken URI has the same shape as the template, without throwing an exception
+	 * @param brokenURI the URI, split by the delimiter
+	 * @return true if every literal segment matches and the URI has as many segments as the template
+	 * @see #checkSegments(String[])
+	 */
+	boolean matchesSegments(String[] brokenURI) {
+		brokenURI = segmentsOf(brokenURI);
+		if(brokenURI.length != segments.length)
+			return false;
+		for (int i = 0; i < segments.length; i++)
+			if(!placeholders[i] && !segments[i].equals(brokenURI[i]))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Checks whether some URI could match both this template and another one.
+	 * This is the case if they have the same number of segments, and at every segment either both are the same literal,
+	 * or at least one is a placeholder that could accept the other's value.
+	 * @param other the other template
+	 * @return true if the templates overlap
+	 */
+	boolean overlaps(CompiledTemplate other) {
+		if(segments.length != other.segments.length)
+			return false;
+		for (int i = 0; i < segments.length; i++) {
+			if(placeholders[i] && other.placeholders[i])
+				continue;
+			if(!placeholders[i] && !other.placeholders[i]){
+				if(!segments[i].equals(other.segments[i]))
+					return false;
+				continue;
+			}
+			ParameterType type = placeholders[i] ? types[i] : other.types[i];
+			String literal = placeholders[i] ? other.segments[i] : segments[i];
+			if(type != null && !CharSegments.accepts(type, literal, 0, literal.length()))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Converts the parameters of the broken URI, which must already match the shape of the template.
+	 * Parameters are stored directly in their slots, without looking up their names.
+	 * @param brokenURI the URI, split by the delimiter
+	 * @return the parameters of the URI, or null if a parameter could not be converted to its type
+	 * @see #matchesSegments(String[])
+	 */
+	UrlParametersMap bind(String[] brokenURI) {
+		UrlParametersMap params = new UrlParametersMap(this);
+		for (int i = 0; i < segments.length; i++) {
+			if(types[i] == null)
+				continue;
+			try{
+				params.putSlot(slots[i], types[i], convert(types[i], brokenURI[i]));
+			}catch(NumberFormatException e){
+				return null;
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * Converts a value to the given type
+	 * @param type the type of the parameter
+	 * @param value the value of the parameter
+	 * @return the converted value
+	 * @throws NumberFormatException if the value can not be converted to the type
+	 */
+	static Object convert(ParameterType type, String value) throws NumberFormatException {
+		switch(type){
+		case INT:
+			return Integer.parseInt(value);
+		case BOOLEAN:
+			return UrlParser.parseBoolean(value);
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * Returns the slot of the parameter of the given name.
+	 * Since {@link String} caches its hash code, looking up a constant name costs one array index and one comparison.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param name the name of the parameter
+	 * @return the slot of the parameter, or -1 if the template has no parameter of that name
+	 */
+	public int slotOf(String name) {
+		int mask = table.length - 1;
+		for (int i = index(name.hashCode(), multiplier, mask);; i = (i + 1) & mask) {
+			int slot = table[i];
+			if(slot < 0)
+				return -1;
+			if(keys[slot].getName().equals(name))
+				return slot;
+		}
+	}
+
+	/**
+	 * Returns the key of the parameter of the given name
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param name the name of the parameter
+	 * @return the key of the parameter
+	 * @throws IllegalArgumentException if the template has no parameter of that name
+	 */
+	public ParamKey<?> getKey(String name) {
+		int slot = slotOf(name);
+		if(slot < 0)
+			throw new IllegalArgumentException("Template "+template+" has no parameter "+name);
+		return keys[slot];
+	}
+
+	/**
+	 * Returns the key of the string parameter of the given name
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param name the name of the parameter
+	 * @return the key of the parameter
+	 * @throws IllegalArgumentException if the template has no parameter of that name
+	 * @throws IncompatibleParameterTypeException if the parameter is not of type string
+	 */
+	public ParamKey<String> stringKey(String name) {
+		return typedKey(name, ParameterType.STRING);
+	}
+
+	/**
+	 * Returns the key of the integer parameter of the given name
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param name the name of the parameter
+	 * @return the key of the parameter
+	 * @throws IllegalArgumentException if the template has no parameter of that name
+	 * @throws IncompatibleParameterTypeException if the parameter is not of type integer
+	 */
+	public ParamKey<Integer> intKey(String name) {
+		return typedKey(name, ParameterType.INT);
+	}
+
+	/**
+	 * Returns the key of the boolean parameter of the given name
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param name the name of the parameter
+	 * @return the key of the parameter
+	 * @throws IllegalArgumentException if the template has no parameter of that name
+	 * @throws IncompatibleParameterTypeException if the parameter is not of type boolean
+	 */
+	public ParamKey<Boolean> booleanKey(String name) {
+		return typedKey(name, ParameterType.BOOLEAN);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> ParamKey<T> typedKey(String name, ParameterType type) {
+		ParamKey<?> key = getKey(name);
+		if(key.getType() != type)
+			throw new IncompatibleParameterTypeException("Parameter "+key.getType().toString()+" can not be cast to "+type.toString());
+		return (ParamKey<T>) key;
+	}
+
+	/**
+	 * Extracts a single integer parameter from a URI, without parsing the rest of the URI and without allocating.
+	 * Only the segments up to the first segment holding the parameter are scanned, and literal segments are not checked,
+	 * so this suits picking a backend for a URI that is parsed in full later.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI
+	 * @param key the key of the parameter
+	 * @return the value of the parameter
+	 * @throws ParameterNotProvidedException if the URI ends before the segment of the parameter
+	 * @throws ParameterParseException if the segment is not an integer
+	 * @throws IllegalArgumentException if the key belongs to another template
+	 */
+	public int extractInt(CharSequence URI, ParamKey<Integer> key) throws ParameterNotProvidedException, ParameterParseException {
+		long range = locate(URI, key);
+		long value = CharSegments.parseInt(URI, start(range), end(range));
+		if(value == CharSegments.NOT_AN_INT)
+			throw notConvertible(URI, range, ParameterType.INT);
+		return (int) value;
+	}
+
+	/**
+	 * Extracts a single boolean parameter from a URI, without parsing the rest of the URI and without allocating
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI
+	 * @param key the key of the parameter
+	 * @return the value of the parameter
+	 * @throws ParameterNotProvidedException if the URI ends before the segment of the parameter
+	 * @throws ParameterParseException if the segment is not a boolean
+	 * @throws IllegalArgumentException if the key belongs to another template
+	 * @see #extractInt(CharSequence, ParamKey)
+	 */
+	public boolean extractBoolean(CharSequence URI, ParamKey<Boolean> key) throws ParameterNotProvidedException, ParameterParseException {
+		long range = locate(URI, key);
+		int value = CharSegments.parseBoolean(URI, start(range), end(range));
+		if(value < 0)
+			throw notConvertible(URI, range, ParameterType.BOOLEAN);
+		return value == 1;
+	}
+
+	/**
+	 * Hashes a single parameter of a URI, without parsing the rest of the URI and without allocating.
+	 * Integer and boolean parameters are hashed by value, so {@code 007} and {@code 7} have the same hash,
+	 * and string parameters by their characters. The hash is a 64-bit mix that is stable across runs,
+	 * so it can be used to pick a shard with {@link JumpConsistentHash}.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI
+	 * @param key the key of the parameter
+	 * @return the hash of the value of the parameter
+	 * @throws ParameterNotProvidedException if the URI ends before the segment of the parameter
+	 * @throws ParameterParseException if the segment can not be converted to the type of the parameter
+	 * @throws IllegalArgumentException if the key belongs to another template
+	 * @see #extractInt(CharSequence, ParamKey)
+	 */
+	public long hashParameter(CharSequence URI, ParamKey<?> key) throws ParameterNotProvidedException, ParameterParseException {
+		long range = locate(URI, key);
+		int start = start(range), end = end(range);
+		long hash;
+		switch(key.getType()){
+		case INT:
+			hash = CharSegments.parseInt(URI, start, end);
+			if(hash == CharSegments.NOT_AN_INT)
+				throw notConvertible(URI, range, ParameterType.INT);
+			break;
+		case BOOLEAN:
+			hash = CharSegments.parseBoolean(URI, start, end);
+			if(hash < 0)
+				throw notConvertible(URI, range, ParameterType.BOOLEAN);
+			break;
+		default:
+			hash = 0xcbf29ce484222325L;
+			for (int i = start; i < end; i++)
+				hash = (hash ^ URI.charAt(i)) * 0x100000001b3L;
+		}
+		hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * Picks the shard of a URI by a single parameter, without parsing the rest of the URI and without allocating
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI
+	 * @param key the key of the parameter
+	 * @param shards the number of shards
+	 * @return the shard, from 0 to shards - 1
+	 * @throws ParameterNotProvidedException if the URI ends before the segment of the parameter
+	 * @throws ParameterParseException if the segment can not be converted to the type of the parameter
+	 * @throws IllegalArgumentException if the key belongs to another template, or there are no shards
+	 * @see #hashParameter(CharSequence, ParamKey)
+	 * @see JumpConsistentHash#bucket(long, int)
+	 */
+	public int shardOf(CharSequence URI, ParamKey<?> key, int shards) throws ParameterNotProvidedException, ParameterParseException {
+		return JumpConsistentHash.bucket(hashParameter(URI, key), shards);
+	}
+
+	/**
+	 * Finds the first segment holding a parameter in a URI, scanning it as {@link UrlParser#parse(String)} would split it
+	 * @return the start of the segment in the high half, and its end in the low half
+	 */
+	private long locate(CharSequence URI, ParamKey<?> key) throws ParameterNotProvidedException {
+		if(!ownsKey(key))
+			throw new IllegalArgumentException("Key "+key+" does not belong to template "+template);
+		int index = 0;
+		while(!placeholders[index] || slots[index] != key.getSlot())
+			index++;
+		DelimiterMatcher matcher = delimiterMatcher();
+		int end = matcher.trimmedLength(URI);
+		int start = 0;
+		for (int i = 0; i < index; i++) {
+			int segmentEnd = matcher.segmentEnd(URI, start, end);
+			if(segmentEnd == end)
+				throw new ParameterNotProvidedException("URI has no segment "+index+" for parameter "+key.getName());
+			start = segmentEnd + 1;
+		}
+		return (long) start << 32 | matcher.segmentEnd(URI, start, end);
+	}
+
+	private static int start(long range) {
+		return (int) (range >>> 32);
+	}
+
+	private static int end(long range) {
+		return (int) range;
+	}
+
+	private static ParameterParseException notConvertible(CharSequence URI, long range, ParameterType type) {
+		String value = URI.subSequence(start(range), end(range)).toString();
+		return new ParameterParseException("String \""+value+"\" could not be parsed as "+type.toString().toLowerCase(),value,type);
+	}
+
+	/**
+	 * Returns the estimated heap size of this template, including its segments, parameter names, keys and perfect hash.
+	 * Sizes assume a 64-bit JVM with compressed references.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return the estimated retained size in bytes
+	 * @see AllocationSampler
+	 */
+	public long estimateRetainedBytes() {
+		HeapEstimate estimate = new HeapEstimate();
+		addTo(estimate);
+		return estimate.bytes();
+	}
+
+	/**
+	 * Adds the estimated size of this template to a heap estimate, counting objects shared with other templates once
+	 * @param estimate the estimate to add to
+	 */
+	void addTo(HeapEstimate estimate) {
+		if(!estimate.object(this, 10 * HeapEstimate.REFERENCE + 4))
+			return;
+		estimate.string(template);
+		estimate.string(delimiter);
+		if(estimate.array(segments, segments.length, HeapEstimate.REFERENCE))
+			for (String segment : segments)
+				estimate.string(segment);
+		estimate.array(placeholders, placeholders.length, 1);
+		estimate.array(types, types.length, HeapEstimate.REFERENCE);
+		if(estimate.array(names, names.length, HeapEstimate.REFERENCE))
+			for (String name : names)
+				if(name != null)
+					estimate.string(name);
+		estimate.array(slots, slots.length, 4);
+		if(estimate.array(keys, keys.length, HeapEstimate.REFERENCE)){
+			for (ParamKey<?> key : keys) {
+				if(estimate.object(key, 2 * HeapEstimate.REFERENCE + 4))
+					estimate.string(key.getName());
+			}
+		}
+		estimate.array(table, table.length, 4);
+		DelimiterMatcher matcher = delimiterMatcher;
+		if(matcher != null)
+			matcher.addTo(estimate);
+	}
+
+	/**
+	 * Checks whether the given key belongs to this template
+	 * @param key the key to check
+	 * @return true if the key was created by this template
+	 */
+	boolean ownsKey(ParamKey<?> key) {
+		return key.getSlot() < keys.length && keys[key.getSlot()] == key;
+	}
+
+	/**
+	 * Returns the keys of all parameters of the template, in slot order
+	 * @return the keys of the template
+	 */
+	public List<ParamKey<?>> getKeys() {
+		return Collections.unmodifiableList(Arrays.asList(keys));
+	}
+
+	/**
+	 * Returns the number of parameter slots of the template
+	 * @return the number of distinct parameter names
+	 */
+	public int slotCount() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the template that was compiled
+	 * @return the template
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Returns the delimiter the template was split by
+	 * @return the delimiter, in standard regex form
+	 */
+	public String getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * Returns a matcher for the delimiter of the template, creating it on first use.
+	 * The matcher is immutable, so threads racing to create it is harmless.
+	 * @return the delimiter matcher
+	 */
+	DelimiterMatcher delimiterMatcher() {
+		DelimiterMatcher matcher = delimiterMatcher;
+		if(matcher == null)
+			delimiterMatcher = matcher = new DelimiterMatcher(delimiter);
+		return matcher;
+	}
+
+	/**
+	 * Returns the segments of the template. The returned array must not be modified.
+	 * @return the segments of the template
+	 */
+	String[] getSegments() {
+		return segments;
+	}
+
+	/**
+	 * Returns the number of segments of the template
+	 * @return the number of segments
+	 */
+	public int segmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * Returns the segment at the given index
+	 * @param index the index of the segment
+	 * @return the segment, either a literal or a placeholder
+	 */
+	public String getSegment(int index) {
+		return segments[index];
+	}
+
+	/**
+	 * Returns whether the segment at the given index is a placeholder
+	 * @param index the index of the segment
+	 * @return true if the segment is of the form <code>{...}</code>
+	 */
+	public boolean isPlaceholder(int index) {
+		return placeholders[index];
+	}
+
+	/**
+	 * Returns the type of the placeholder at the given index
+	 * @param index the index of the segment
+	 * @return the type of the placeholder, or null for literals and malformed placeholders
+	 */
+	public ParameterType getType(int index) {
+		return types[index];
+	}
+
+	/**
+	 * Returns the name of the placeholder at the given index
+	 * @param index the index of the segment
+	 * @return the name of the placeholder, or null for literals and malformed placeholders
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Returns the slot of the placeholder at the given index
+	 * @param index the index of the segment
+	 * @return the slot of the placeholder, or -1 for literals and malformed placeholders
+	 */
+	public int getSlot(int index) {
+		return slots[index];
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+}
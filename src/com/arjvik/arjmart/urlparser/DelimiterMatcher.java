@@ -0,0 +1,80 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches single characters against a delimiter regex, so that URIs can be scanned one character at a time
+ * instead of being split. ASCII characters are looked up in a table built from the regex up front.
+ * Only delimiters that match single characters (such as the default {@code [/\\\\]}) are supported.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+final class DelimiterMatcher {
+
+	private final String delimiter;
+	private final Pattern pattern;
+	private final boolean[] ascii = new boolean[128];
+
+	DelimiterMatcher(String delimiter) {
+		this.delimiter = delimiter;
+		this.pattern = Pattern.compile(delimiter);
+		for (char c = 0; c < ascii.length; c++)
+			ascii[c] = pattern.matcher(String.valueOf(c)).matches();
+	}
+
+	/**
+	 * Adds the estimated size of this matcher to a heap estimate, not counting its compiled regex
+	 * @param estimate the estimate to add to
+	 */
+	void addTo(HeapEstimate estimate) {
+		if(!estimate.object(this, 3 * HeapEstimate.REFERENCE))
+			return;
+		estimate.string(delimiter);
+		estimate.array(ascii, ascii.length, 1);
+	}
+
+	/**
+	 * Returns the delimiter regex
+	 * @return the delimiter, in standard regex form
+	 */
+	String getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * Checks whether a character is a delimiter
+	 * @param c the character to check
+	 * @return true if the character matches the delimiter
+	 */
+	boolean matches(char c) {
+		return c < ascii.length ? ascii[c] : pattern.matcher(String.valueOf(c)).matches();
+	}
+
+	/**
+	 * Returns the length of the URI without its trailing delimiters.
+	 * Scanning the URI up to this length gives the same segments as {@link UrlParser#split(String, String)},
+	 * except that a URI of length 0 has no segments at all.
+	 * @param URI the URI
+	 * @return the length of the URI without trailing delimiters
+	 */
+	int trimmedLength(CharSequence URI) {
+		int end = URI.length();
+		while(end > 0 && matches(URI.charAt(end - 1)))
+			end--;
+		return end;
+	}
+
+	/**
+	 * Returns the end of the segment starting at the given index
+	 * @param URI the URI
+	 * @param start the start of the segment
+	 * @param end the end of the URI
+	 * @return the index of the delimiter ending the segment, or end
+	 */
+	int segmentEnd(CharSequence URI, int start, int end) {
+		int i = start;
+		while(i < end && !matches(URI.charAt(i)))
+			i++;
+		return i;
+	}
+}
@@ -0,0 +1,100 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Adds up the estimated heap size of a graph of objects, counting each object once however many times it is reached.
+ * Sizes assume a 64-bit JVM with compressed references (12 byte object headers, 16 byte array headers,
+ * 4 byte references and 8 byte alignment) and the Java 8 layout of {@link String}, backed by a char array.
+ * Shared JDK objects, such as enum constants, cached boxes and compiled regex patterns, are not counted.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+final class HeapEstimate {
+
+	static final int OBJECT_HEADER = 12;
+	static final int ARRAY_HEADER = 16;
+	static final int REFERENCE = 4;
+	private static final int ALIGNMENT = 8;
+
+	private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<Object,Boolean>());
+	private long bytes;
+
+	/**
+	 * Counts an object, unless it has already been counted
+	 * @param object the object
+	 * @param fieldBytes the total size of the fields of the object
+	 * @return true if the object had not been counted before, so its fields should be counted too
+	 */
+	boolean object(Object object, int fieldBytes) {
+		if(object == null || !seen.add(object))
+			return false;
+		bytes += align(OBJECT_HEADER + fieldBytes);
+		return true;
+	}
+
+	/**
+	 * Counts an array, unless it has already been counted
+	 * @param array the array
+	 * @param length the length of the array
+	 * @param elementBytes the size of each element, such as {@link #REFERENCE} for arrays of objects
+	 * @return true if the array had not been counted before, so its elements should be counted too
+	 */
+	boolean array(Object array, int length, int elementBytes) {
+		if(array == null || !seen.add(array))
+			return false;
+		bytes += align(ARRAY_HEADER + (long) length * elementBytes);
+		return true;
+	}
+
+	/**
+	 * Counts an array that can not be reached, such as the table of a {@link java.util.HashMap}
+	 * @param length the estimated length of the array
+	 * @param elementBytes the size of each element
+	 */
+	void hiddenArray(int length, int elementBytes) {
+		bytes += align(ARRAY_HEADER + (long) length * elementBytes);
+	}
+
+	/**
+	 * Counts a String and its characters, unless it has already been counted
+	 * @param s the String
+	 */
+	void string(String s) {
+		if(object(s, REFERENCE + 4))
+			bytes += align(ARRAY_HEADER + 2L * s.length());
+	}
+
+	/**
+	 * Counts a boxed value or String held as an Object
+	 * @param value the value
+	 */
+	void value(Object value) {
+		if(value instanceof String)
+			string((String) value);
+		else if(value instanceof Integer && ((Integer) value).intValue() != (byte) ((Integer) value).intValue())
+			object(value, 4); //integers from -128 to 127 are cached
+	}
+
+	/**
+	 * Counts a number of bytes outside of the heap, such as a direct buffer
+	 * @param offHeapBytes the number of bytes
+	 */
+	void offHeap(long offHeapBytes) {
+		bytes += offHeapBytes;
+	}
+
+	/**
+	 * Returns the total estimated size
+	 * @return the size of everything counted, in bytes
+	 */
+	long bytes() {
+		return bytes;
+	}
+
+	private static long align(long size) {
+		return (size + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+}
@@ -0,0 +1,25 @@
+package com.arjvik.arjmart.urlparser;
+
+/**
+ * The HTTP request methods that routes can be restricted to
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see CompactRouteTable.Builder#add(String, HttpMethod, String, String)
+ */
+public enum HttpMethod {
+	GET, HEAD, POST, PUT, DELETE, CONNECT, OPTIONS, TRACE, PATCH;
+
+	private static final HttpMethod[] METHODS = values();
+
+	/**
+	 * Finds the method with the given name, without allocating. Method names are case sensitive.
+	 * @param name the name of the method, as in the request line
+	 * @return the method, or null if there is no such method
+	 */
+	public static HttpMethod of(CharSequence name) {
+		for (HttpMethod method : METHODS)
+			if(CharSegments.regionEquals(name, 0, name.length(), method.name()))
+				return method;
+		return null;
+	}
+}
@@ -0,0 +1,39 @@
+package com.arjvik.arjmart.urlparser;
+
+/**
+ * The JumpConsistentHash class maps keys to a number of buckets, such as backend nodes, with the jump consistent hash
+ * of Lamping and Veach. It needs no memory and does not allocate. When the number of buckets grows from N to N+1,
+ * only about 1/(N+1) of the keys move, and all of them move to the new bucket. Its usage is as follows:
+ * <br>
+ * <pre>
+ * int node = JumpConsistentHash.bucket(compiled.hashParameter(request.getURI(), TENANT_ID), nodes.size());
+ * </pre>
+ * Buckets can only be added or removed at the end, so it suits numbered replicas rather than arbitrary sets of nodes.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see CompiledTemplate#shardOf(CharSequence, ParamKey, int)
+ */
+public final class JumpConsistentHash {
+
+	private JumpConsistentHash() {
+	}
+
+	/**
+	 * Returns the bucket of a key
+	 * @param key the key, which should be well mixed, such as from {@link CompiledTemplate#hashParameter(CharSequence, ParamKey)}
+	 * @param buckets the number of buckets
+	 * @return the bucket, from 0 to buckets - 1
+	 * @throws IllegalArgumentException if there are no buckets
+	 */
+	public static int bucket(long key, int buckets) {
+		if(buckets < 1)
+			throw new IllegalArgumentException("There must be at least one bucket");
+		long bucket = -1, next = 0;
+		while(next < buckets){
+			bucket = next;
+			key = key * 2862933555777941757L + 1;
+			next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+		}
+		return (int) bucket;
+	}
+}
@@ -0,0 +1,58 @@
+package com.arjvik.arjmart.urlparser;
+
+/**
+ * A constant handle to a parameter of a {@link CompiledTemplate}.
+ * Looking up a parameter by its key is a single array index, with no hashing of the name. Its usage is as follows:
+ * <br>
+ * <pre>
+ * static final ParamKey&lt;Integer&gt; ITEM_ID = parser.getCompiledTemplate().intKey("itemID");
+ * ...
+ * int itemID = parser.parse(request.getURI()).get(ITEM_ID);
+ * </pre>
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @param <T> the Java type of the parameter value
+ * @see CompiledTemplate#getKey(String)
+ * @see UrlParametersMap#get(ParamKey)
+ */
+public final class ParamKey<T> {
+
+	private final String name;
+	private final ParameterType type;
+	private final int slot;
+
+	ParamKey(String name, ParameterType type, int slot) {
+		this.name = name;
+		this.type = type;
+		this.slot = slot;
+	}
+
+	/**
+	 * Returns the name of the parameter
+	 * @return the name of the parameter
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the type of the parameter
+	 * @return the type of the parameter
+	 */
+	public ParameterType getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the slot of the parameter in its {@link CompiledTemplate}
+	 * @return the slot of the parameter
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public String toString() {
+		return "{"+type+":"+name+"}";
+	}
+}
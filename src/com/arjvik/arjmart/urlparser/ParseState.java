@@ -0,0 +1,184 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The ParseState class parses a URI that arrives in chunks, such as a request line read from a socket in several reads.
+ * It advances through the template one segment at a time, keeping only the part of the current segment read so far,
+ * so the URI never has to be assembled into a single String. Its usage is as follows:
+ * <br>
+ * <pre>
+ * ParseState state = parser.newParseState();
+ * state.feed(firstChunk);
+ * state.feed(secondChunk);
+ * UrlParametersMap params = state.finish();
+ * </pre>
+ * If the parser is strict, literal segments are compared one character at a time as they arrive,
+ * so a URI that does not match the template is rejected with a {@link TemplateMismatchException}
+ * as soon as its first mismatched character is fed, before the rest of the URI is read.
+ * Parameters are converted as soon as their segment is complete.
+ * Once a ParseState has thrown an exception or finished, it can not be fed again.
+ * Only delimiters that match single characters are supported.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see UrlParser#newParseState()
+ */
+public class ParseState {
+
+	private final CompiledTemplate template;
+	private final boolean strict;
+	private final DelimiterMatcher delimiter;
+	private final UrlParametersMap params;
+	private final StringBuilder value = new StringBuilder();
+	private int completed;
+	private int pendingEmptySegments;
+	private int length;
+	private boolean done;
+
+	/**
+	 * Creates a new ParseState for the given template
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param template the template to parse the URI with
+	 * @param strict whether literal segments and the number of segments should be checked
+	 * @param params the {@link UrlParametersMap} to add parameters to
+	 * @see UrlParser#newParseState()
+	 */
+	public ParseState(CompiledTemplate template, boolean strict, UrlParametersMap params) {
+		this.template = template;
+		this.strict = strict;
+		this.delimiter = template.delimiterMatcher();
+		this.params = params;
+	}
+
+	/**
+	 * Feeds the next chunk of the URI
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param chunk the next characters of the URI
+	 * @throws TemplateMismatchException if the parser is strict and the URI no longer matches the template
+	 * @throws ParameterParseException if a parameter can not be converted to its type
+	 * @throws IllegalStateException if the ParseState has already finished or failed
+	 */
+	public void feed(CharSequence chunk) throws ParameterParseException {
+		checkNotDone();
+		for (int i = 0; i < chunk.length(); i++)
+			accept(chunk.charAt(i));
+	}
+
+	/**
+	 * Feeds the next chunk of the URI as bytes, each of which is one ISO-8859-1 character.
+	 * The remaining bytes of the buffer are consumed.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param chunk the next bytes of the URI
+	 * @throws TemplateMismatchException if the parser is strict and the URI no longer matches the template
+	 * @throws ParameterParseException if a parameter can not be converted to its type
+	 * @throws IllegalStateException if the ParseState has already finished or failed
+	 */
+	public void feed(ByteBuffer chunk) throws ParameterParseException {
+		checkNotDone();
+		while(chunk.hasRemaining())
+			accept((char) (chunk.get() & 0xFF));
+	}
+
+	/**
+	 * Finishes parsing the URI, completing its last segment
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return the {@link UrlParametersMap} that contains the provided parameters
+	 * @throws TemplateMismatchException if the parser is strict and the URI is missing segments
+	 * @throws ParameterParseException if a parameter can not be converted to its type
+	 * @throws IllegalStateException if the ParseState has already finished or failed
+	 */
+	public UrlParametersMap finish() throws ParameterParseException {
+		checkNotDone();
+		done = true;
+		if(length > 0)
+			completeSegment(); //trailing empty segments are dropped, as with UrlParser.split
+		if(strict && completed < template.segmentCount())
+			throw new TemplateMismatchException("URI is missing segment "+completed+" (expected \""+template.getSegment(completed)+"\")",null,completed);
+		return params;
+	}
+
+	/**
+	 * Returns the index of the segment currently being read
+	 * @return the index of the current segment
+	 */
+	public int getSegmentIndex() {
+		return completed + pendingEmptySegments;
+	}
+
+	private void checkNotDone() {
+		if(done)
+			throw new IllegalStateException("ParseState has already finished");
+	}
+
+	private void accept(char c) throws ParameterParseException {
+		if(delimiter.matches(c)){
+			if(length == 0){
+				pendingEmptySegments++; //only checked once a later segment shows that it is not trailing
+			}else{
+				completeSegment();
+			}
+			return;
+		}
+		if(length == 0 && pendingEmptySegments > 0){
+			int pending = pendingEmptySegments;
+			pendingEmptySegments = 0;
+			for (int i = 0; i < pending; i++)
+				completeSegment();
+		}
+		int index = completed;
+		if(index < template.segmentCount()){
+			if(!template.isPlaceholder(index)){
+				String literal = template.getSegment(index);
+				if(strict && (length >= literal.length() || literal.charAt(length) != c)){
+					String segment = literal.substring(0, Math.min(length, literal.length())) + c;
+					fail("Segment starting \""+segment+"\" does not match \""+literal+"\"",segment,index);
+				}
+			}else{
+				value.append(c);
+			}
+		}else if(strict){
+			fail("URI has extra segment starting \""+c+"\"",String.valueOf(c),index);
+		}
+		length++;
+	}
+
+	private void completeSegment() throws ParameterParseException {
+		int index = completed;
+		if(index < template.segmentCount()){
+			if(!template.isPlaceholder(index)){
+				if(strict && length != template.getSegment(index).length())
+					fail("Segment \""+template.getSegment(index).substring(0, length)+"\" does not match \""+template.getSegment(index)+"\"",template.getSegment(index).substring(0, length),index);
+			}else{
+				addParameter(index, value.toString());
+			}
+		}else if(strict){
+			fail("URI has extra segment \"\"","",index);
+		}
+		value.setLength(0);
+		length = 0;
+		completed++;
+	}
+
+	private void addParameter(int index, String segment) throws ParameterParseException {
+		ParameterType type = template.getType(index);
+		if(type == null){
+			done = true;
+			throw new ParameterParseException("Invalid parser type");
+		}
+		try{
+			params.addParameter(template.getName(index), type, CompiledTemplate.convert(type, segment));
+		}catch(NumberFormatException e){
+			done = true;
+			throw new ParameterParseException("String \""+segment+"\" could not be parsed as "+type.toString().toLowerCase(),e,segment,type);
+		}
+	}
+
+	private void fail(String message, String segment, int index) throws TemplateMismatchException {
+		done = true;
+		throw new TemplateMismatchException(message, segment, index);
+	}
+}
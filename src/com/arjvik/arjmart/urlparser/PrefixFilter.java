@@ -0,0 +1,174 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A Bloom filter over the leading literal segments of a set of templates, used by {@link UrlRouter}
+ * to reject URIs that can not match any route without splitting them.
+ * Each template contributes its literal segments up to its first placeholder, or up to the filter depth.
+ * A template that is entirely literal and no deeper than the filter contributes its whole path instead,
+ * so that a route such as {@code /} does not let through every URI that starts with the delimiter.
+ * A URI is checked by hashing its segments as they are scanned, and looking up the prefix after each segment count
+ * that some template contributed. The check never allocates and never rejects a URI that could match a template,
+ * but may accept a URI that matches none, with about the configured false positive rate.
+ * If some template starts with a placeholder, the filter accepts every URI.
+ * Only delimiters that match single characters are supported.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+final class PrefixFilter {
+
+	private final DelimiterMatcher delimiter;
+	private final int depth;
+	private final long[] bits;
+	private final int mask;
+	private final int hashes;
+	private final int prefixLengths;
+	private final int pathLengths;
+
+	private PrefixFilter(DelimiterMatcher delimiter, int depth) {
+		this.delimiter = delimiter;
+		this.depth = depth;
+		this.bits = null;
+		this.mask = 0;
+		this.hashes = 0;
+		this.prefixLengths = 0;
+		this.pathLengths = 0;
+	}
+
+	private PrefixFilter(DelimiterMatcher delimiter, int depth, double falsePositiveRate, Set<Long> prefixes, int prefixLengths, int pathLengths) {
+		this.delimiter = delimiter;
+		this.depth = depth;
+		this.prefixLengths = prefixLengths;
+		this.pathLengths = pathLengths;
+		int n = Math.max(1, prefixes.size());
+		double optimalBits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		int size = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(64, Math.ceil(optimalBits))) * 2 - 1);
+		this.bits = new long[size >>> 6];
+		this.mask = size - 1;
+		this.hashes = (int) Math.max(1, Math.min(16, Math.round((double) size / n * Math.log(2))));
+		for (long prefix : prefixes)
+			add(prefix);
+	}
+
+	/**
+	 * Builds a filter over the given templates
+	 * @param templates the templates that URIs are routed to
+	 * @param delimiter the delimiter of the templates
+	 * @param depth the maximum number of segments in a prefix, from 1 to 32
+	 * @param falsePositiveRate the intended rate of URIs that match no template but are accepted
+	 * @return the filter
+	 */
+	static PrefixFilter build(CompiledTemplate[] templates, DelimiterMatcher delimiter, int depth, double falsePositiveRate) {
+		Set<Long> prefixes = new HashSet<>();
+		int prefixLengths = 0, pathLengths = 0;
+		for (CompiledTemplate template : templates) {
+			if(template.segmentCount() == 0)
+				continue; //only matches URIs that are all delimiters, which are never rejected
+			int length = Math.min(depth, template.segmentCount());
+			long hash = 0;
+			int i = 0;
+			for (; i < length && !template.isPlaceholder(i); i++) {
+				String segment = template.getSegment(i);
+				hash = next(hash, segment, 0, segment.length());
+			}
+			if(i == 0)
+				return new PrefixFilter(delimiter, depth);
+			if(i == template.segmentCount()){
+				prefixes.add(path(hash));
+				pathLengths |= 1 << (i - 1);
+			}else{
+				prefixes.add(hash);
+				prefixLengths |= 1 << (i - 1);
+			}
+		}
+		return new PrefixFilter(delimiter, depth, falsePositiveRate, prefixes, prefixLengths, pathLengths);
+	}
+
+	/**
+	 * Adds the estimated size of this filter to a heap estimate
+	 * @param estimate the estimate to add to
+	 */
+	void addTo(HeapEstimate estimate) {
+		if(!estimate.object(this, 2 * HeapEstimate.REFERENCE + 5 * 4))
+			return;
+		delimiter.addTo(estimate);
+		if(bits != null)
+			estimate.array(bits, bits.length, 8);
+	}
+
+	/**
+	 * Returns whether the filter can reject any URI
+	 * @return false if some template starts with a placeholder
+	 */
+	boolean isActive() {
+		return bits != null;
+	}
+
+	/**
+	 * Checks whether a URI could match any of the templates
+	 * @param URI the URI to check
+	 * @return false if the URI can not match any template
+	 */
+	boolean mightMatch(CharSequence URI) {
+		if(bits == null)
+			return true;
+		int end = delimiter.trimmedLength(URI);
+		if(end == 0)
+			return true; //the URI is all delimiters, which String.split does not break into segments
+		long hash = 0;
+		int start = 0;
+		for (int count = 1; count <= depth; count++) {
+			int segmentEnd = delimiter.segmentEnd(URI, start, end);
+			hash = next(hash, URI, start, segmentEnd);
+			if((prefixLengths & 1 << (count - 1)) != 0 && contains(hash))
+				return true;
+			if(segmentEnd == end)
+				return (pathLengths & 1 << (count - 1)) != 0 && contains(path(hash));
+			start = segmentEnd + 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Extends the hash of a prefix with one more segment, using FNV-1a over the characters of the segment
+	 */
+	private static long next(long hash, CharSequence segment, int start, int end) {
+		long h = hash ^ 0xcbf29ce484222325L;
+		for (int i = start; i < end; i++)
+			h = (h ^ segment.charAt(i)) * 0x100000001b3L;
+		return mix(h ^ (end - start));
+	}
+
+	/**
+	 * Returns the hash of a whole path, which differs from the hash of the same segments as a prefix
+	 */
+	private static long path(long hash) {
+		return mix(hash + 0x9e3779b97f4a7c15L);
+	}
+
+	private static long mix(long h) {
+		h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+		h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+
+	private void add(long hash) {
+		int h1 = (int) hash, h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = (h1 + i * h2) & mask;
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	private boolean contains(long hash) {
+		int h1 = (int) hash, h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = (h1 + i * h2) & mask;
+			if((bits[bit >>> 6] & 1L << bit) == 0)
+				return false;
+		}
+		return true;
+	}
+}
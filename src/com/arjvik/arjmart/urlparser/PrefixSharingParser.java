@@ -0,0 +1,167 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The PrefixSharingParser class parses a sequence of URIs that share long prefixes, such as sorted log lines.
+ * It remembers where each segment of the previous URI ended and the parameters decoded from it,
+ * so that segments inside the prefix shared with the previous URI are neither scanned nor decoded again.
+ * Only the differing suffix of each URI is parsed. Its usage is as follows:
+ * <br>
+ * <pre>
+ * PrefixSharingParser batch = parser.newPrefixSharingParser();
+ * for (String URI : sortedURIs)
+ *     process(batch.parse(URI));
+ * </pre>
+ * The results are the same as those of {@link UrlParser#parse(String)}, in any order of URIs; sorting only makes the prefixes longer.
+ * A URI that can not be parsed throws the same exception as {@link UrlParser#parse(String)}, and the next URI is parsed from scratch.
+ * Parameters decoded once are shared by the {@link UrlParametersMap}s of every URI with the same prefix.
+ * A PrefixSharingParser keeps state between URIs, so it must not be shared between threads.
+ * Only delimiters that match single characters are supported.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see UrlParser#newPrefixSharingParser()
+ */
+public class PrefixSharingParser {
+
+	private final UrlParser parser;
+	private CompiledTemplate template;
+	private boolean strict;
+	private DelimiterMatcher matcher;
+	private String previous;
+	private int[] segmentEnds = new int[0];
+	private ParameterValue[] values = new ParameterValue[0];
+	private int segments;
+	private long reusedSegments;
+	private long parsedSegments;
+
+	/**
+	 * Creates a new PrefixSharingParser, which uses the current template and strictness of the parser for each URI
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param parser the parser whose template to parse URIs with
+	 * @see UrlParser#newPrefixSharingParser()
+	 */
+	public PrefixSharingParser(UrlParser parser) {
+		this.parser = parser;
+	}
+
+	/**
+	 * Parses the next URI, reusing the segments it shares with the previous URI
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI to parse
+	 * @return the {@link UrlParametersMap} that contains the provided parameters
+	 * @throws ParameterParseException if the URI can not be parsed, as thrown by {@link UrlParser#parse(String)}
+	 */
+	public UrlParametersMap parse(String URI) throws ParameterParseException {
+		CompiledTemplate compiled = parser.getCompiledTemplate();
+		if(compiled == null)
+			return parseFromScratch(URI); //no template yet, so fail exactly as the parser does
+		boolean strictNow = parser.isStrict();
+		String delimiter = parser.getDelimiter();
+		if(compiled != template || strictNow != strict || !delimiter.equals(matcher.getDelimiter())){
+			template = compiled;
+			strict = strictNow;
+			//UrlParser.parse splits URIs by the current delimiter, which setDelimiter may have changed since the template was compiled
+			matcher = delimiter.equals(compiled.getDelimiter()) ? compiled.delimiterMatcher() : new DelimiterMatcher(delimiter);
+			segmentEnds = new int[compiled.segmentCount()];
+			values = new ParameterValue[compiled.segmentCount()];
+			previous = null;
+		}
+		int end = matcher.trimmedLength(URI);
+		if(end == 0)
+			return parseFromScratch(URI); //all delimiters, which String.split may not break into segments
+		int reused = 0;
+		if(previous != null){
+			int common = commonPrefix(previous, URI);
+			while(reused < segments && segmentEnds[reused] < common && segmentEnds[reused] <= end)
+				reused++;
+		}
+		reusedSegments += reused;
+		int index = reused;
+		int start = reused == 0 ? 0 : segmentEnds[reused - 1] + 1;
+		boolean ended = reused > 0 && segmentEnds[reused - 1] == end;
+		while(!ended){
+			int segmentEnd = matcher.segmentEnd(URI, start, end);
+			if(index < compiled.segmentCount()){
+				if(compiled.isPlaceholder(index)){
+					ParameterType type = compiled.getType(index);
+					if(type == null || !CharSegments.accepts(type, URI, start, segmentEnd))
+						return parseFromScratch(URI);
+					values[index] = new ParameterValue(type, CharSegments.convert(type, URI, start, segmentEnd));
+				}else if(strict && !CharSegments.regionEquals(URI, start, segmentEnd, compiled.getSegment(index))){
+					return parseFromScratch(URI);
+				}
+				segmentEnds[index] = segmentEnd;
+				parsedSegments++;
+			}else if(strict){
+				return parseFromScratch(URI);
+			}else{
+				break; //segments past the end of the template are ignored
+			}
+			index++;
+			ended = segmentEnd == end;
+			start = segmentEnd + 1;
+		}
+		if(strict && index < compiled.segmentCount())
+			return parseFromScratch(URI);
+		previous = URI;
+		segments = Math.min(index, compiled.segmentCount());
+		UrlParametersMap params = new UrlParametersMap(compiled);
+		for (int i = 0; i < segments; i++)
+			if(compiled.isPlaceholder(i))
+				params.putSlot(compiled.getSlot(i), values[i]);
+		return params;
+	}
+
+	/**
+	 * Parses all of the provided URIs in order
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URIs the URIs to parse, ideally sorted
+	 * @return the parameters of the URIs, in the same order
+	 * @throws ParameterParseException if any of the URIs can not be parsed
+	 */
+	public List<UrlParametersMap> parseAll(List<String> URIs) throws ParameterParseException {
+		List<UrlParametersMap> results = new ArrayList<>(URIs.size());
+		for (String URI : URIs)
+			results.add(parse(URI));
+		return results;
+	}
+
+	/**
+	 * Returns the number of segments that were reused from previous URIs instead of being parsed
+	 * @return the number of reused segments
+	 */
+	public long getReusedSegments() {
+		return reusedSegments;
+	}
+
+	/**
+	 * Returns the number of segments that were parsed
+	 * @return the number of parsed segments
+	 */
+	public long getParsedSegments() {
+		return parsedSegments;
+	}
+
+	/**
+	 * Parses a URI that can not resume from the previous URI, or that fails, with the parser itself,
+	 * so that it gets exactly the same result or exception
+	 */
+	private UrlParametersMap parseFromScratch(String URI) throws ParameterParseException {
+		previous = null;
+		segments = 0;
+		return parser.parse(URI);
+	}
+
+	private static int commonPrefix(String a, String b) {
+		int length = Math.min(a.length(), b.length());
+		int i = 0;
+		while(i < length && a.charAt(i) == b.charAt(i))
+			i++;
+		return i;
+	}
+}
@@ -0,0 +1,63 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The RouteCompiler class compiles a list of routes into a {@link UrlRouter} snapshot at build time.
+ * The route list is a text file with one route per line, made of the route name and its template separated by whitespace.
+ * Blank lines and lines starting with {@code #} are ignored. Its usage is as follows:
+ * <br>
+ * <pre>
+ * java com.arjvik.arjmart.urlparser.RouteCompiler routes.txt routes.bin
+ * </pre>
+ * The snapshot is then loaded at startup with {@link UrlRouter#readSnapshot(Path)}.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ */
+public class RouteCompiler {
+
+	/**
+	 * Compiles the routes of a route list into a UrlRouter
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param lines the lines of the route list
+	 * @param delimiter the delimiter, in standard regex form
+	 * @return a UrlRouter with the routes of the route list
+	 * @throws IllegalArgumentException if a line does not have both a name and a template
+	 */
+	public static UrlRouter compile(List<String> lines, String delimiter) {
+		UrlRouter router = new UrlRouter(delimiter);
+		for (String line : lines) {
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] nameAndTemplate = line.split("\\s+", 2);
+			if(nameAndTemplate.length != 2)
+				throw new IllegalArgumentException("Route \""+line+"\" must have a name and a template");
+			router.putRoute(nameAndTemplate[0], nameAndTemplate[1]);
+		}
+		return router;
+	}
+
+	/**
+	 * Compiles a route list into a snapshot file
+	 * @param args the route list, the snapshot file, and optionally the delimiter
+	 * @throws IOException if the route list can not be read or the snapshot file can not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2){
+			System.err.println("Usage: RouteCompiler <routes.txt> <snapshot.bin> [delimiter]");
+			System.exit(1);
+		}
+		Path routes = Paths.get(args[0]);
+		Path snapshot = Paths.get(args[1]);
+		UrlRouter router = compile(Files.readAllLines(routes, StandardCharsets.UTF_8), args.length > 2 ? args[2] : "[/\\\\]");
+		router.writeSnapshot(snapshot);
+		System.out.println("Compiled "+router.getRouteNames().size()+" routes into "+snapshot);
+	}
+}
@@ -0,0 +1,82 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The RouteMatch class is the result of routing a URI with a {@link UrlRouter}.
+ * It holds the name of the route that matched, its template, and the parameters of the URI.
+ * When routing by method, a RouteMatch may instead report that routes matched the URI but not its method,
+ * along with the methods that are allowed, so that a {@code 405 Method Not Allowed} response can be sent.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see UrlRouter#route(String)
+ */
+public final class RouteMatch {
+
+	private final String routeName;
+	private final CompiledTemplate template;
+	private final UrlParametersMap parameters;
+	private final Set<HttpMethod> allowedMethods;
+
+	RouteMatch(String routeName, CompiledTemplate template, UrlParametersMap parameters) {
+		this.routeName = routeName;
+		this.template = template;
+		this.parameters = parameters;
+		this.allowedMethods = Collections.emptySet();
+	}
+
+	RouteMatch(Set<HttpMethod> allowedMethods) {
+		this.routeName = null;
+		this.template = null;
+		this.parameters = null;
+		this.allowedMethods = Collections.unmodifiableSet(allowedMethods);
+	}
+
+	/**
+	 * Returns whether routes matched the URI, but none of them allowed its method
+	 * @return true if the request should be answered with {@code 405 Method Not Allowed}
+	 * @see #getAllowedMethods()
+	 */
+	public boolean isMethodNotAllowed() {
+		return routeName == null;
+	}
+
+	/**
+	 * Returns the methods allowed by the routes that matched the URI, if none of them allowed its method
+	 * @return the allowed methods, or an empty set if a route matched
+	 * @see #isMethodNotAllowed()
+	 */
+	public Set<HttpMethod> getAllowedMethods() {
+		return allowedMethods;
+	}
+
+	/**
+	 * Returns the name of the route that matched
+	 * @return the name of the route, or null if the method is not allowed
+	 */
+	public String getRouteName() {
+		return routeName;
+	}
+
+	/**
+	 * Returns the template of the route that matched
+	 * @return the compiled template of the route
+	 */
+	public CompiledTemplate getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Returns the parameters of the URI
+	 * @return the parameters of the URI, or null if the method is not allowed
+	 */
+	public UrlParametersMap getParameters() {
+		return parameters;
+	}
+
+	@Override
+	public String toString() {
+		return isMethodNotAllowed() ? "405 "+allowedMethods : routeName+" "+template;
+	}
+}
@@ -0,0 +1,39 @@
+package com.arjvik.arjmart.urlparser;
+
+/**
+ * Thrown by a strict {@link UrlParser} when the URI does not have the same shape as the template,
+ * either because a literal segment differs or because the URI has extra or missing segments.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see UrlParser#setStrict(boolean)
+ */
+public class TemplateMismatchException extends ParameterParseException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+	
+	private int segmentIndex = -1;
+
+	public TemplateMismatchException() {
+	}
+
+	public TemplateMismatchException(String message) {
+		super(message);
+	}
+
+	public TemplateMismatchException(String message, String value, int segmentIndex) {
+		super(message, value, null);
+		this.segmentIndex=segmentIndex;
+	}
+
+	/**
+	 * Returns the index of the first segment that did not match the template
+	 * @return the index of the mismatched segment, or -1 if unknown
+	 */
+	public int getSegmentIndex() {
+		return segmentIndex;
+	}
+
+}
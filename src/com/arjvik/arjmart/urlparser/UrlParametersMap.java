@@ -17,6 +17,8 @@ import java.util.Map;
 public class UrlParametersMap {
 
 	private Map<String,ParameterValue> map;
+	private CompiledTemplate template;
+	private ParameterValue[] values;
 	
 	/**
 	 * Creates a new UrlParametersMap with a HashMap as its backend.
@@ -38,6 +40,24 @@ public class UrlParametersMap {
 		this.map=map;
 	}
 	
+	/**
+	 * Creates a new UrlParametersMap that stores the parameters of the given template in slots.
+	 * Parameters of the template are looked up by a single array index, using the perfect hash of the {@link CompiledTemplate}.
+	 * Parameters that are not part of the template are stored in a HashMap.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param template the template whose parameters are stored in this UrlParametersMap, or null to use a HashMap as the backend
+	 * @see UrlParser#parse(String)
+	 */
+	public UrlParametersMap(CompiledTemplate template){
+		if(template == null){
+			this.map=new HashMap<>();
+		}else{
+			this.template=template;
+			this.values=new ParameterValue[template.slotCount()];
+		}
+	}
+	
 	/**
 	 * Adds a parameter to the UrlParametersMap. This is a convenience method, and should not be used.
 	 * @deprecated
@@ -62,9 +82,73 @@ public class UrlParametersMap {
 	 * @since 1.0.0
 	 */
 	public void addParameter(String name, ParameterType type, Object value){
+		if(template != null){
+			int slot = template.slotOf(name);
+			if(slot >= 0){
+				values[slot] = new ParameterValue(type,value);
+				return;
+			}
+			if(map == null)
+				map = new HashMap<>();
+		}
 		map.put(name, new ParameterValue(type,value));
 	}
 	
+	/**
+	 * Stores a parameter directly in a slot of the template of this UrlParametersMap
+	 * @param slot The slot of the parameter
+	 * @param type The type of the parameter
+	 * @param value The value of the parameter
+	 */
+	void putSlot(int slot, ParameterType type, Object value){
+		values[slot] = new ParameterValue(type,value);
+	}
+	
+	/**
+	 * Stores a parameter value directly in a slot of the template of this UrlParametersMap.
+	 * The value may be shared with other UrlParametersMaps, since it is never exposed or modified.
+	 * @param slot The slot of the parameter
+	 * @param value The value of the parameter
+	 */
+	void putSlot(int slot, ParameterValue value){
+		values[slot] = value;
+	}
+	
+	/**
+	 * Returns the estimated heap size of this UrlParametersMap and the parameters it holds.
+	 * The template of the UrlParametersMap is not counted, since it is shared with the parser.
+	 * Sizes assume a 64-bit JVM with compressed references.
+	 * @return the estimated retained size in bytes
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @see AllocationSampler
+	 */
+	public long estimateRetainedBytes(){
+		HeapEstimate estimate = new HeapEstimate();
+		estimate.object(this, 3 * HeapEstimate.REFERENCE);
+		if(values != null && estimate.array(values, values.length, HeapEstimate.REFERENCE))
+			for (ParameterValue value : values)
+				addTo(estimate, value);
+		if(map != null && estimate.object(map, 6 * 4 + 2 * HeapEstimate.REFERENCE)){
+			int capacity = 16;
+			while(capacity * 3 / 4 < map.size())
+				capacity *= 2;
+			if(!map.isEmpty())
+				estimate.hiddenArray(capacity, HeapEstimate.REFERENCE); //the table of the HashMap
+			for (Map.Entry<String,ParameterValue> entry : map.entrySet()) {
+				estimate.object(entry, 4 + 3 * HeapEstimate.REFERENCE);
+				estimate.string(entry.getKey());
+				addTo(estimate, entry.getValue());
+			}
+		}
+		return estimate.bytes();
+	}
+	
+	private static void addTo(HeapEstimate estimate, ParameterValue value){
+		if(value != null && estimate.object(value, 2 * HeapEstimate.REFERENCE))
+			estimate.value(value.getValue());
+	}
+	
 	/**
 	 * Checks whether a parameter of the given name is present in the UrlParametersMap.
 	 * This is true if the parameter was provided. It can be false in either of two ways:
@@ -78,9 +162,57 @@ public class UrlParametersMap {
 	 * @since 1.0.0
 	 */
 	public boolean parameterExists(String name){
+		if(template != null)
+			return lookup(name) != null;
 		return map.containsKey(name);
 	}
 	
+	/**
+	 * Returns the value of the parameter of the given key.
+	 * If the key belongs to the template of this UrlParametersMap, this is a single array index.
+	 * Otherwise, the parameter is looked up by the name of the key.
+	 * @param <T> the type of the parameter
+	 * @param key The key of the parameter
+	 * @return the value of the parameter
+	 * @throws IncompatibleParameterTypeException if parameter is not of the type of the key
+	 * @throws ParameterNotProvidedException if parameter was not provided
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @see CompiledTemplate#getKey(String)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(ParamKey<T> key) throws IncompatibleParameterTypeException, ParameterNotProvidedException{
+		ParameterValue value = template != null && template.ownsKey(key) ? values[key.getSlot()] : find(key.getName());
+		if(value == null)
+			throw new ParameterNotProvidedException("Parameter "+key.getName()+" was not provided");
+		if(!value.getType().equals(key.getType()))
+			throw new IncompatibleParameterTypeException("Parameter "+value.getType().toString()+" can not be cast to "+key.getType().toString());
+		return (T) value.getValue();
+	}
+	
+	/**
+	 * Looks up the parameter of the given name in the slots, falling back to the map for parameters not in the template
+	 * @param name The name of the parameter
+	 * @return the parameter, or null if it was not provided
+	 */
+	private ParameterValue lookup(String name){
+		int slot = template.slotOf(name);
+		if(slot >= 0)
+			return values[slot];
+		return map == null ? null : map.get(name);
+	}
+	
+	/**
+	 * Finds the parameter of the given name
+	 * @param name The name of the parameter
+	 * @return the parameter, or null if it was not provided
+	 */
+	private ParameterValue find(String name){
+		if(template != null)
+			return lookup(name);
+		return map.get(name);
+	}
+	
 	/**
 	 * Returns the string value of the parameter of given name.
 	 * @param name The name of the parameter
@@ -91,9 +223,9 @@ public class UrlParametersMap {
 	 * @since 1.0.0
 	 */
 	public String getString(String name) throws IncompatibleParameterTypeException, ParameterNotProvidedException{
-		if(!map.containsKey(name))
+		ParameterValue value = find(name);
+		if(value == null)
 			throw new ParameterNotProvidedException("Parameter "+name+" was not provided");
-		ParameterValue value = map.get(name);
 		if(!value.getType().equals(ParameterType.STRING))
 			throw new IncompatibleParameterTypeException("Parameter "+value.getType().toString()+" can not be cast to String");
 		return (String) value.getValue();
@@ -109,9 +241,9 @@ public class UrlParametersMap {
 	 * @since 1.0.0
 	 */
 	public int getInt(String name) throws IncompatibleParameterTypeException, ParameterNotProvidedException{
-		if(!map.containsKey(name))
+		ParameterValue value = find(name);
+		if(value == null)
 			throw new ParameterNotProvidedException("Parameter "+name+" was not provided");
-		ParameterValue value = map.get(name);
 		if(!value.getType().equals(ParameterType.INT))
 			throw new IncompatibleParameterTypeException("Parameter "+value.getType().toString()+" can not be cast to Int");
 		return (Integer) value.getValue();
@@ -127,9 +259,9 @@ public class UrlParametersMap {
 	 * @since 1.0.0
 	 */
 	public boolean getBoolean(String name) throws IncompatibleParameterTypeException, ParameterNotProvidedException{
-		if(!map.containsKey(name))
+		ParameterValue value = find(name);
+		if(value == null)
 			throw new ParameterNotProvidedException("Parameter "+name+" was not provided");
-		ParameterValue value = map.get(name);
 		if(!value.getType().equals(ParameterType.BOOLEAN))
 			throw new IncompatibleParameterTypeException("Parameter "+value.getType().toString()+" can not be cast to Boolean");
 		return (Boolean) value.getValue();
@@ -18,15 +18,20 @@ package com.arjvik.arjmart.urlparser;
  * String stringParam = params.getString("StringParam");
  * </pre>
  * See the respective methods for more info on formatting codes
+ * <br>
+ * A UrlParser keeps no per-request or per-thread state (and no {@link ThreadLocal}s), so once it is set up,
+ * a single UrlParser can be shared by any number of threads. Each parse reads the template and delimiter once,
+ * so changing them while other threads are parsing is safe, although those parses may still use the old values.
+ * See {@link AsyncUrlParser} for asynchronous parsing.
  * 
  * @author Arjun Vikram
  * @since 1.0.0
  * @see UrlParametersMap
  */
 public class UrlParser {
-	private String delimiter;
-	private String template;
-	private String[] brokenTemplate;
+	private volatile String delimiter;
+	private volatile CompiledTemplate compiledTemplate;
+	private volatile boolean strict;
 	
 	/**
 	 * Creates a new UrlParser with the given template. Identical to:
@@ -86,7 +91,7 @@ public class UrlParser {
 	 * @see #setTemplate(String)
 	 */
 	public String getTemplate() {
-		return template;
+		return compiledTemplate == null ? null : compiledTemplate.getTemplate();
 	}
 	
 	/**
@@ -97,7 +102,19 @@ public class UrlParser {
 	 * @see #setTemplate(String)
 	 */
 	public String[] getBrokenTemplate() {
-		return brokenTemplate;
+		return compiledTemplate == null ? null : compiledTemplate.getSegments();
+	}
+	
+	/**
+	 * Returns the compiled form of the template used by the UrlParser.
+	 * The compiled template exposes the parameters of the template as {@link ParamKey}s.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return the compiled form of the template used by the UrlParser
+	 * @see #setTemplate(String)
+	 */
+	public CompiledTemplate getCompiledTemplate() {
+		return compiledTemplate;
 	}
 
 	/**
@@ -108,14 +125,55 @@ public class UrlParser {
 	 * Placeholder values are as follows: <code> {TYPE:name} </code>.
 	 * The type can be any of the types listed in {@link ParameterType}, namely STRING, INT, BOOLEAN. 
 	 * The name can be any alphanumeric value.
+	 * The template is compiled once here, using the current delimiter, so that parsing does not have to re-analyze it.
 	 * @author Arjun Vikram
 	 * @since 1.0.0
 	 * @param template the template to be used for the UrlParser
 	 * @see #getTemplate()
 	 */
 	public void setTemplate(String template) {
-		this.template = template;
-		brokenTemplate = template.split(delimiter);
+		compiledTemplate = CompiledTemplate.compile(template, delimiter);
+	}
+	
+	/**
+	 * Sets the template used by the UrlParser to one that is already compiled,
+	 * for example one read with {@link CompiledTemplate#readFrom(java.io.DataInput)}.
+	 * The delimiter of the UrlParser is set to the delimiter of the compiled template.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param compiledTemplate the compiled template to be used for the UrlParser
+	 * @see #setTemplate(String)
+	 */
+	public void setCompiledTemplate(CompiledTemplate compiledTemplate) {
+		this.delimiter = compiledTemplate.getDelimiter();
+		this.compiledTemplate = compiledTemplate;
+	}
+	
+	/**
+	 * Returns whether the UrlParser is in strict mode
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return true if the UrlParser validates literal segments and segment counts
+	 * @see #setStrict(boolean)
+	 */
+	public boolean isStrict() {
+		return strict;
+	}
+
+	/**
+	 * Sets whether the UrlParser is in strict mode.
+	 * In strict mode, every literal segment of the template must equal the corresponding segment of the URI,
+	 * and the URI must have exactly as many segments as the template.
+	 * The URI is checked before any parameters are converted, so a mismatched URI fails fast
+	 * with a {@link TemplateMismatchException}.
+	 * By default, the UrlParser is not strict.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param strict whether the UrlParser should be strict
+	 * @see #isStrict()
+	 */
+	public void setStrict(boolean strict) {
+		this.strict = strict;
 	}
 	
 	/**
@@ -123,6 +181,7 @@ public class UrlParser {
 	 * This map contains all the provided parameters that are found in the URI.
 	 * If the template is longer than the URI, the parameters are marked as not being provided (excluded from the {@link UrlParametersMap})
 	 * If the URI is longer than the template, any extra values are ignored.
+	 * In strict mode, both of these cases (as well as mismatched literal segments) cause a {@link TemplateMismatchException} instead.
 	 * @author Arjun Vikram
 	 * @since 1.0.0
 	 * @param URI the URI to parse.
@@ -130,7 +189,19 @@ public class UrlParser {
 	 * @throws ParameterParseException if parameters aren't formatted according to template
 	 */
 	public UrlParametersMap parse(String URI) throws ParameterParseException{
-		return parse(URI, new UrlParametersMap());
+		CompiledTemplate compiled = compiledTemplate;
+		String[] brokenURI = split(URI, delimiter);
+		if(strict)
+			compiled.checkSegments(brokenURI);
+		UrlParametersMap params = new UrlParametersMap(compiled);
+		for (int i = 0; i < compiled.segmentCount() && i < brokenURI.length; i++) {
+			ParameterType type = compiled.getType(i);
+			if(type != null)
+				params.putSlot(compiled.getSlot(i), type, convertParameter(type, brokenURI[i]));
+			else if(compiled.isPlaceholder(i))
+				parseParameter(compiled.getSegment(i), brokenURI[i], params);
+		}
+		return params;
 	}
 	
 	/**
@@ -144,16 +215,73 @@ public class UrlParser {
 	 * @throws ParameterParseException if parameters aren't formatted according to template
 	 */
 	public UrlParametersMap parse(String URI, UrlParametersMap params) throws ParameterParseException {
-		String cleanedURI = trimLastSlash(URI);
-		String[] brokenURI = cleanedURI.split(delimiter);
+		CompiledTemplate compiled = compiledTemplate;
+		String[] brokenURI = split(URI, delimiter);
+		if(strict)
+			compiled.checkSegments(brokenURI);
+		String[] brokenTemplate = compiled.getSegments();
 		for (int i = 0; i < brokenTemplate.length && i < brokenURI.length; i++) {
-			if(brokenTemplate[i].matches("\\{.*\\}")){
+			if(compiled.isPlaceholder(i)){
 				parseParameter(brokenTemplate[i],brokenURI[i],params);
 			}
 		}
 		return params;
 	}
 
+	/**
+	 * Checks whether a segment of the template is a placeholder of the form <code>{TYPE:name}</code>
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param segment the template segment
+	 * @return true if the segment is a placeholder
+	 */
+	static boolean isPlaceholder(String segment) {
+		return segment.matches("\\{.*\\}");
+	}
+
+	/**
+	 * Creates a {@link ParseState} to parse a URI that arrives in chunks.
+	 * The ParseState uses the current template and strictness of the UrlParser, and the delimiter the template was compiled with.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return a new ParseState
+	 * @see #parse(String)
+	 */
+	public ParseState newParseState() {
+		CompiledTemplate compiled = compiledTemplate;
+		return new ParseState(compiled, strict, new UrlParametersMap(compiled));
+	}
+
+	/**
+	 * Returns the estimated heap size of this parser, including its compiled template.
+	 * Sizes assume a 64-bit JVM with compressed references.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return the estimated retained size in bytes
+	 * @see CompiledTemplate#estimateRetainedBytes()
+	 * @see AllocationSampler
+	 */
+	public long estimateRetainedBytes() {
+		HeapEstimate estimate = new HeapEstimate();
+		estimate.object(this, 2 * HeapEstimate.REFERENCE + 1);
+		estimate.string(delimiter);
+		CompiledTemplate compiled = compiledTemplate;
+		if(compiled != null)
+			compiled.addTo(estimate);
+		return estimate.bytes();
+	}
+
+	/**
+	 * Creates a {@link PrefixSharingParser} to parse a sequence of URIs that share long prefixes, such as sorted log lines
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return a new PrefixSharingParser
+	 * @see #parse(String)
+	 */
+	public PrefixSharingParser newPrefixSharingParser() {
+		return new PrefixSharingParser(this);
+	}
+
 	/**
 	 * Parses individual parameters, sorting them according to their type
 	 * @author Arjun Vikram
@@ -184,6 +312,21 @@ public class UrlParser {
 		}
 	}
 
+	/**
+	 * Converts a parameter to the type it was compiled with, failing like {@link #addInt} and {@link #addBoolean}
+	 * @param type the type of the parameter
+	 * @param value the value of the parameter
+	 * @return the converted value
+	 * @throws ParameterParseException if the value can not be converted to the type
+	 */
+	private static Object convertParameter(ParameterType type, String value) throws ParameterParseException {
+		try{
+			return CompiledTemplate.convert(type, value);
+		}catch(NumberFormatException e){
+			throw new ParameterParseException("String \""+value+"\" could not be parsed as integer",e,value,ParameterType.INT);
+		}
+	}
+
 	/**
 	 * Parses a string, adding it to the provided {@link UrlParametersMap}
 	 * @author Arjun Vikram
@@ -284,6 +427,20 @@ public class UrlParser {
 	}
 	
 	
+	/**
+	 * Splits a URI into its segments, after removing its last delimiter.
+	 * A URI that is empty or made only of delimiters has no segments, so it matches the template <code>/</code>.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI to split
+	 * @param delimiter the delimiter, in standard regex form
+	 * @return the segments of the URI
+	 * @see CompiledTemplate#segmentsOf(String[])
+	 */
+	static String[] split(String URI, String delimiter) {
+		return CompiledTemplate.segmentsOf((URI.isEmpty() ? URI : trimLastSlash(URI, delimiter)).split(delimiter));
+	}
+
 	/**
 	 * Removes the last delimiter (slash by default) in the URI passed to it.
 	 * If the passed string ends with the delimiter, it is removed.
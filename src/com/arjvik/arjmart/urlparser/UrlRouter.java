@@ -0,0 +1,906 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * The UrlRouter class matches URIs against a set of named templates, and returns the parameters of the first route that matches.
+ * Routes can be added, replaced and removed while other threads are routing. Every update compiles its template first,
+ * then publishes a new immutable route table with a single atomic swap, so routing never takes a lock
+ * and always sees a complete route table. Old route tables are garbage collected once no thread is using them.
+ * Its usage is as follows:
+ * <br>
+ * <pre>
+ * UrlRouter router = new UrlRouter();
+ * router.putRoute("item", "/items/{INT:itemID}");
+ * router.putRoute("itemByName", "/items/{STRING:itemName}");
+ * RouteMatch match = router.route(request.getURI()); // or request path
+ * if(match != null &amp;&amp; match.getRouteName().equals("item")){
+ *     int itemID = match.getParameters().getInt("itemID");
+ * }
+ * </pre>
+ * Routes are matched strictly (see {@link UrlParser#setStrict(boolean)}), in the order they were added.
+ * A typed placeholder only matches values that can be converted to its type, so in the example above
+ * {@code /items/5} matches "item" and {@code /items/apples} matches "itemByName".
+ * <br>
+ * In adaptive mode (see {@link #setAdaptive(boolean)}), the UrlRouter samples how often each route matches,
+ * and periodically publishes a route table where the most frequently matched routes are tried first.
+ * Routes that could match the same URI always stay in the order they were added, so the route a URI matches never changes.
+ * <br>
+ * With a prefix filter (see {@link #setPrefixFilter(boolean)}), URIs whose leading segments match no route,
+ * such as scanners probing for {@code /wp-admin/}, are rejected without being split or compared to each route.
+ * @author Arjun Vikram
+ * @since 1.1.0
+ * @see RouteMatch
+ */
+public class UrlRouter {
+
+	private static final int SNAPSHOT_MAGIC = 0x55524C52; //"URLR"
+	private static final int SNAPSHOT_VERSION = 1;
+
+	private final String delimiter;
+	private final AtomicReference<RouteTable> table;
+	private volatile boolean adaptive;
+	private volatile int sampleRate = 64;
+	private volatile int reorderInterval = 1024;
+	private volatile Executor reorderExecutor = ForkJoinPool.commonPool();
+	private final AtomicBoolean reorderScheduled = new AtomicBoolean();
+	private final DelimiterMatcher delimiterMatcher;
+	private final LongAdder filterRejections = new LongAdder();
+	private final LongAdder filterPasses = new LongAdder();
+
+	/**
+	 * Creates a new UrlRouter with default delimiter of {@code [/\\\\]}
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 */
+	public UrlRouter() {
+		this("[/\\\\]");
+	}
+
+	/**
+	 * Creates a new UrlRouter with the given delimiter
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param delimiter the delimiter, in standard regex form
+	 * @see UrlParser#setDelimiter(String)
+	 */
+	public UrlRouter(String delimiter) {
+		this.delimiter = delimiter;
+		this.delimiterMatcher = new DelimiterMatcher(delimiter);
+		this.table = new AtomicReference<>(new RouteTable(new String[0], new CompiledTemplate[0], new FilterSettings(delimiterMatcher, false, 3, 0.01)));
+	}
+
+	/**
+	 * Returns the delimiter used by the UrlRouter
+	 * @return the delimiter used by the UrlRouter
+	 */
+	public String getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * Returns whether the UrlRouter reorders its routes by how often they match
+	 * @return true if the UrlRouter is adaptive
+	 * @see #setAdaptive(boolean)
+	 */
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	/**
+	 * Sets whether the UrlRouter reorders its routes by how often they match.
+	 * An adaptive UrlRouter counts one in every {@link #getSampleRate() sample rate} matches,
+	 * and reorders its routes on its {@link #getReorderExecutor() reorder executor} after every {@link #getReorderInterval() reorder interval} counted matches.
+	 * By default, the UrlRouter is not adaptive.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param adaptive whether the UrlRouter should be adaptive
+	 * @see #reorder()
+	 */
+	public void setAdaptive(boolean adaptive) {
+		this.adaptive = adaptive;
+	}
+
+	/**
+	 * Returns how many matches an adaptive UrlRouter makes for each match it counts
+	 * @return the sample rate
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * Sets how many matches an adaptive UrlRouter makes for each match it counts. Defaults to 64.
+	 * @param sampleRate the sample rate, 1 to count every match
+	 */
+	public void setSampleRate(int sampleRate) {
+		if(sampleRate < 1)
+			throw new IllegalArgumentException("Sample rate must be positive");
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Returns how many counted matches an adaptive UrlRouter waits for between reorders
+	 * @return the reorder interval
+	 */
+	public int getReorderInterval() {
+		return reorderInterval;
+	}
+
+	/**
+	 * Sets how many counted matches an adaptive UrlRouter waits for between reorders. Defaults to 1024.
+	 * @param reorderInterval the reorder interval
+	 */
+	public void setReorderInterval(int reorderInterval) {
+		if(reorderInterval < 1)
+			throw new IllegalArgumentException("Reorder interval must be positive");
+		this.reorderInterval = reorderInterval;
+	}
+
+	/**
+	 * Returns the executor that an adaptive UrlRouter reorders its routes on
+	 * @return the reorder executor
+	 */
+	public Executor getReorderExecutor() {
+		return reorderExecutor;
+	}
+
+	/**
+	 * Sets the executor that an adaptive UrlRouter reorders its routes on, so that reordering never delays a request.
+	 * At most one reorder is scheduled at a time. Defaults to {@link ForkJoinPool#commonPool()}.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param reorderExecutor the executor to reorder on
+	 * @see #setAdaptive(boolean)
+	 */
+	public void setReorderExecutor(Executor reorderExecutor) {
+		if(reorderExecutor == null)
+			throw new IllegalArgumentException("Reorder executor must not be null");
+		this.reorderExecutor = reorderExecutor;
+	}
+
+	/**
+	 * Returns the number of counted matches of a route
+	 * @param name the name of the route
+	 * @return the number of counted matches, or 0 if there is no such route
+	 * @see #setAdaptive(boolean)
+	 */
+	public long getSampledHits(String name) {
+		RouteTable current = table.get();
+		int i = current.indexOf(name);
+		return i < 0 ? 0 : current.hits.get(i);
+	}
+
+	/**
+	 * Publishes a new route table where the most frequently matched routes are tried first.
+	 * Routes that could match the same URI keep their order relative to each other.
+	 * The counted matches are halved, so that the order keeps following changes in traffic.
+	 * This is called automatically by an adaptive UrlRouter on its {@link #getReorderExecutor() reorder executor}, but can also be called on a schedule.
+	 * The first reorder compares every pair of routes to find the routes that overlap, which takes time quadratic in the number of routes;
+	 * later reorders reuse that comparison, and only compare added or replaced routes to the others.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @see #setAdaptive(boolean)
+	 */
+	public void reorder() {
+		while(true){
+			RouteTable current = table.get();
+			if(table.compareAndSet(current, current.reordered()))
+				return;
+		}
+	}
+
+	/**
+	 * Returns whether URIs are checked against a prefix filter before being routed
+	 * @return true if the prefix filter is enabled
+	 * @see #setPrefixFilter(boolean)
+	 */
+	public boolean isPrefixFilter() {
+		return table.get().filterSettings.enabled;
+	}
+
+	/**
+	 * Sets whether URIs are checked against a prefix filter before being routed.
+	 * The prefix filter is a Bloom filter over the literal segments that start each route, up to the {@link #getFilterDepth() filter depth}.
+	 * A URI whose leading segments can not start any route is rejected by scanning it once, without allocating.
+	 * The filter never rejects a URI that matches a route, and is rebuilt with every new route table, whenever the routes or the filter settings change.
+	 * If some route starts with a placeholder, no URI can be rejected, so the filter has no effect.
+	 * The prefix filter is disabled by default, and only supports delimiters that match single characters.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param prefixFiltered whether the prefix filter should be enabled
+	 * @see #getFilterRejections()
+	 */
+	public void setPrefixFilter(boolean prefixFiltered) {
+		updateFilterSettings(settings -> new FilterSettings(settings.delimiter, prefixFiltered, settings.depth, settings.falsePositiveRate));
+	}
+
+	/**
+	 * Returns the maximum number of leading segments the prefix filter checks
+	 * @return the filter depth
+	 */
+	public int getFilterDepth() {
+		return table.get().filterSettings.depth;
+	}
+
+	/**
+	 * Sets the maximum number of leading segments the prefix filter checks. Defaults to 3.
+	 * A URI that starts with the delimiter has an empty first segment, so the default covers paths such as {@code /api/v1}.
+	 * @param filterDepth the filter depth, from 1 to 32
+	 */
+	public void setFilterDepth(int filterDepth) {
+		if(filterDepth < 1 || filterDepth > 32)
+			throw new IllegalArgumentException("Filter depth must be between 1 and 32");
+		updateFilterSettings(settings -> new FilterSettings(settings.delimiter, settings.enabled, filterDepth, settings.falsePositiveRate));
+	}
+
+	/**
+	 * Returns the intended rate of unroutable URIs that the prefix filter fails to reject
+	 * @return the false positive rate
+	 */
+	public double getFilterFalsePositiveRate() {
+		return table.get().filterSettings.falsePositiveRate;
+	}
+
+	/**
+	 * Sets the intended rate of unroutable URIs that the prefix filter fails to reject. Defaults to 0.01.
+	 * Lower rates make the filter larger and its checks slightly slower.
+	 * @param filterFalsePositiveRate the false positive rate, between 0 and 1 exclusive
+	 */
+	public void setFilterFalsePositiveRate(double filterFalsePositiveRate) {
+		if(!(filterFalsePositiveRate > 0 && filterFalsePositiveRate < 1))
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+		updateFilterSettings(settings -> new FilterSettings(settings.delimiter, settings.enabled, settings.depth, filterFalsePositiveRate));
+	}
+
+	/**
+	 * Publishes a new route table with changed prefix filter settings, whose filter is built before it is published
+	 * @param update the change to the settings
+	 */
+	private void updateFilterSettings(UnaryOperator<FilterSettings> update) {
+		while(true){
+			RouteTable current = table.get();
+			if(table.compareAndSet(current, current.withFilterSettings(update.apply(current.filterSettings))))
+				return;
+		}
+	}
+
+	/**
+	 * Returns the number of URIs rejected by the prefix filter
+	 * @return the number of rejected URIs
+	 */
+	public long getFilterRejections() {
+		return filterRejections.sum();
+	}
+
+	/**
+	 * Returns the number of URIs the prefix filter let through to be routed.
+	 * URIs are not counted while some route starts with a placeholder.
+	 * @return the number of URIs that passed the filter
+	 */
+	public long getFilterPasses() {
+		return filterPasses.sum();
+	}
+
+	/**
+	 * Adds a route, or replaces the template of the route if one of the same name already exists.
+	 * A replaced route keeps its place in the insertion order, which decides between routes that could match the same URI.
+	 * If the routes were reordered and the new template overlaps a route that was added later but is tried earlier,
+	 * or one that was added earlier but is tried later, the routes are reordered so that the insertion order decides again.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param name the name of the route
+	 * @param template the template of the route
+	 * @return the previous template of the route, or null if the route is new
+	 * @see UrlParser#setTemplate(String)
+	 */
+	public String putRoute(String name, String template) {
+		CompiledTemplate compiled = CompiledTemplate.compile(template, delimiter);
+		while(true){
+			RouteTable current = table.get();
+			if(table.compareAndSet(current, current.with(name, compiled))){
+				CompiledTemplate previous = current.get(name);
+				return previous == null ? null : previous.getTemplate();
+			}
+		}
+	}
+
+	/**
+	 * Removes a route
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param name the name of the route
+	 * @return the template of the removed route, or null if there was no such route
+	 */
+	public String removeRoute(String name) {
+		while(true){
+			RouteTable current = table.get();
+			CompiledTemplate previous = current.get(name);
+			if(previous == null)
+				return null;
+			if(table.compareAndSet(current, current.without(name)))
+				return previous.getTemplate();
+		}
+	}
+
+	/**
+	 * Returns the compiled template of a route
+	 * @param name the name of the route
+	 * @return the compiled template of the route, or null if there is no such route
+	 */
+	public CompiledTemplate getRoute(String name) {
+		return table.get().get(name);
+	}
+
+	/**
+	 * Returns the names of all routes, in the order they are matched
+	 * @return the names of the routes
+	 */
+	public List<String> getRouteNames() {
+		return Collections.unmodifiableList(Arrays.asList(table.get().names));
+	}
+
+	/**
+	 * Returns the estimated heap size of this router, including the compiled templates of its routes and its prefix filter.
+	 * Templates shared by several routes are counted once.
+	 * Sizes assume a 64-bit JVM with compressed references.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @return the estimated retained size in bytes
+	 * @see CompiledTemplate#estimateRetainedBytes()
+	 * @see AllocationSampler
+	 */
+	public long estimateRetainedBytes() {
+		HeapEstimate estimate = new HeapEstimate();
+		estimate.object(this, 7 * HeapEstimate.REFERENCE + 2 * 4 + 1);
+		estimate.string(delimiter);
+		estimate.object(table, HeapEstimate.REFERENCE);
+		estimate.object(reorderScheduled, 4);
+		delimiterMatcher.addTo(estimate);
+		estimate.object(filterRejections, 8 + 4 + HeapEstimate.REFERENCE);
+		estimate.object(filterPasses, 8 + 4 + HeapEstimate.REFERENCE);
+		table.get().addTo(estimate);
+		return estimate.bytes();
+	}
+
+	/**
+	 * Routes the provided URI to the first route whose template it matches
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param URI the URI to route
+	 * @return the match, or null if no route matches the URI
+	 */
+	public RouteMatch route(String URI) {
+		RouteTable current = table.get();
+		PrefixFilter filter = current.filter;
+		if(filter != null && filter.isActive()){
+			if(!filter.mightMatch(URI)){
+				filterRejections.increment();
+				return null;
+			}
+			filterPasses.increment();
+		}
+		String[] brokenURI = UrlParser.split(URI, delimiter);
+		for (int i = 0; i < current.templates.length; i++) {
+			CompiledTemplate template = current.templates[i];
+			if(!template.matchesSegments(brokenURI))
+				continue;
+			UrlParametersMap params = template.bind(brokenURI);
+			if(params != null){
+				if(adaptive)
+					sample(current, i);
+				return new RouteMatch(current.names[i], template, params);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Counts one in every {@link #sampleRate} matches, and schedules a reorder every {@link #reorderInterval} counted matches.
+	 * If a reorder is already scheduled, no other reorder is scheduled until it finishes.
+	 * @param current the route table the match was made in
+	 * @param route the index of the route that matched
+	 */
+	private void sample(RouteTable current, int route) {
+		if(sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+			return;
+		current.hits.incrementAndGet(route);
+		if(current.samples.incrementAndGet() % reorderInterval == 0 && reorderScheduled.compareAndSet(false, true)){
+			try{
+				reorderExecutor.execute(this::scheduledReorder);
+			}catch(RejectedExecutionException e){
+				reorderScheduled.set(false); //try again at the next interval
+			}
+		}
+	}
+
+	private void scheduledReorder() {
+		try{
+			reorder();
+		}finally{
+			reorderScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Writes all routes, already compiled, as a compact binary snapshot.
+	 * Loading the snapshot with {@link #readSnapshot(InputStream)} skips all template parsing,
+	 * so snapshots can be precomputed at build time (see {@link RouteCompiler}) to speed up startup.
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param out the stream to write the snapshot to
+	 * @throws IOException if the stream can not be written to
+	 */
+	public void writeSnapshot(OutputStream out) throws IOException {
+		RouteTable current = table.get();
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(SNAPSHOT_MAGIC);
+		data.writeInt(SNAPSHOT_VERSION);
+		data.writeUTF(delimiter);
+		data.writeInt(current.names.length);
+		for (int i : current.insertionOrder()) {
+			data.writeUTF(current.names[i]);
+			current.templates[i].writeTo(data);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Writes all routes to a snapshot file
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param path the file to write the snapshot to
+	 * @throws IOException if the file can not be written to
+	 * @see #writeSnapshot(OutputStream)
+	 */
+	public void writeSnapshot(Path path) throws IOException {
+		try(OutputStream out = Files.newOutputStream(path)){
+			writeSnapshot(out);
+		}
+	}
+
+	/**
+	 * Creates a new UrlRouter from a snapshot written by {@link #writeSnapshot(OutputStream)}
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param in the stream to read the snapshot from
+	 * @return a UrlRouter with the routes of the snapshot
+	 * @throws IOException if the stream can not be read, or does not hold a snapshot
+	 */
+	public static UrlRouter readSnapshot(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if(data.readInt() != SNAPSHOT_MAGIC)
+			throw new IOException("Not a UrlRouter snapshot");
+		int version = data.readInt();
+		if(version != SNAPSHOT_VERSION)
+			throw new IOException("Unsupported UrlRouter snapshot version "+version);
+		UrlRouter router = new UrlRouter(data.readUTF());
+		int count = data.readInt();
+		String[] names = new String[count];
+		CompiledTemplate[] templates = new CompiledTemplate[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = data.readUTF();
+			templates[i] = CompiledTemplate.readFrom(data);
+			if(!templates[i].getDelimiter().equals(router.delimiter))
+				throw new IOException("Route "+names[i]+" was compiled with a different delimiter");
+		}
+		router.table.set(new RouteTable(names, templates, router.table.get().filterSettings));
+		return router;
+	}
+
+	/**
+	 * Creates a new UrlRouter from a snapshot file, which is read in a single read
+	 * @author Arjun Vikram
+	 * @since 1.1.0
+	 * @param path the file to read the snapshot from
+	 * @return a UrlRouter with the routes of the snapshot
+	 * @throws IOException if the file can not be read, or does not hold a snapshot
+	 * @see #readSnapshot(InputStream)
+	 */
+	public static UrlRouter readSnapshot(Path path) throws IOException {
+		return readSnapshot(new ByteArrayInputStream(Files.readAllBytes(path)));
+	}
+
+	/**
+	 * The settings of a prefix filter, which are kept in the route table so that they change atomically with the routes
+	 */
+	private static final class FilterSettings {
+
+		final DelimiterMatcher delimiter;
+		final boolean enabled;
+		final int depth;
+		final double falsePositiveRate;
+
+		FilterSettings(DelimiterMatcher delimiter, boolean enabled, int depth, double falsePositiveRate) {
+			this.delimiter = delimiter;
+			this.enabled = enabled;
+			this.depth = depth;
+			this.falsePositiveRate = falsePositiveRate;
+		}
+
+		/**
+		 * Builds the prefix filter of the given templates
+		 * @return the filter, or null if the prefix filter is disabled
+		 */
+		PrefixFilter build(CompiledTemplate[] templates) {
+			return enabled ? PrefixFilter.build(templates, delimiter, depth, falsePositiveRate) : null;
+		}
+	}
+
+	/**
+	 * An immutable, ordered set of routes, with the counted matches and the insertion order of each route,
+	 * and the prefix filter of the routes, which is built before the table is published
+	 */
+	private static final class RouteTable {
+
+		final String[] names;
+		final CompiledTemplate[] templates;
+		final AtomicLongArray hits;
+		final AtomicLong samples = new AtomicLong();
+		/** The order each route was first added in, which decides between overlapping routes however the routes are reordered */
+		final long[] orders;
+		final long nextOrder;
+		final FilterSettings filterSettings;
+		/** The prefix filter of the routes, or null if the prefix filter is disabled */
+		final PrefixFilter filter;
+		/** For each route, the routes that could match the same URI, built on first use and carried over to derived tables */
+		private volatile int[][] overlaps;
+
+		RouteTable(String[] names, CompiledTemplate[] templates, FilterSettings filterSettings) {
+			this(names, templates, new long[names.length], insertionOrders(names.length), names.length, filterSettings, filterSettings.build(templates));
+		}
+
+		RouteTable(String[] names, CompiledTemplate[] templates, long[] hits, long[] orders, long nextOrder, FilterSettings filterSettings, PrefixFilter filter) {
+			this.names = names;
+			this.templates = templates;
+			this.hits = new AtomicLongArray(hits);
+			this.orders = orders;
+			this.nextOrder = nextOrder;
+			this.filterSettings = filterSettings;
+			this.filter = filter;
+		}
+
+		private static long[] insertionOrders(int n) {
+			long[] orders = new long[n];
+			for (int i = 0; i < n; i++)
+				orders[i] = i;
+			return orders;
+		}
+
+		int indexOf(String name) {
+			for (int i = 0; i < names.length; i++)
+				if(names[i].equals(name))
+					return i;
+			return -1;
+		}
+
+		CompiledTemplate get(String name) {
+			int i = indexOf(name);
+			return i < 0 ? null : templates[i];
+		}
+
+		/**
+		 * Returns the same routes with other prefix filter settings, and a filter built with them
+		 */
+		RouteTable withFilterSettings(FilterSettings settings) {
+			RouteTable changed = new RouteTable(names, templates, hits(), orders, nextOrder, settings, settings.build(templates));
+			changed.overlaps = overlaps;
+			return changed;
+		}
+
+		void addTo(HeapEstimate estimate) {
+			if(!estimate.object(this, 8 * HeapEstimate.REFERENCE + 8))
+				return;
+			estimate.object(filterSettings, HeapEstimate.REFERENCE + 1 + 4 + 8);
+			if(estimate.array(names, names.length, HeapEstimate.REFERENCE))
+				for (String name : names)
+					estimate.string(name);
+			if(estimate.array(templates, templates.length, HeapEstimate.REFERENCE))
+				for (CompiledTemplate template : templates)
+					template.addTo(estimate);
+			if(estimate.object(hits, HeapEstimate.REFERENCE))
+				estimate.hiddenArray(hits.length(), 8);
+			estimate.object(samples, 8);
+			if(filter != null)
+				filter.addTo(estimate);
+			int[][] graph = overlaps;
+			if(graph != null && estimate.array(graph, graph.length, HeapEstimate.REFERENCE))
+				for (int[] row : graph)
+					estimate.array(row, row.length, 4);
+			estimate.array(orders, orders.length, 8);
+		}
+
+		/**
+		 * Returns the indices of the routes in the order they were added, which is the order snapshots are written in
+		 */
+		Integer[] insertionOrder() {
+			Integer[] indices = new Integer[names.length];
+			for (int i = 0; i < indices.length; i++)
+				indices[i] = i;
+			Arrays.sort(indices, (a, b) -> Long.compare(orders[a], orders[b]));
+			return indices;
+		}
+
+		long[] hits() {
+			long[] copy = new long[names.length];
+			for (int i = 0; i < copy.length; i++)
+				copy[i] = hits.get(i);
+			return copy;
+		}
+
+		RouteTable with(String name, CompiledTemplate template) {
+			int i = indexOf(name);
+			if(i < 0){
+				String[] newNames = Arrays.copyOf(names, names.length + 1);
+				CompiledTemplate[] newTemplates = Arrays.copyOf(templates, templates.length + 1);
+				newNames[names.length] = name;
+				newTemplates[templates.length] = template;
+				long[] newOrders = Arrays.copyOf(orders, orders.length + 1);
+				newOrders[orders.length] = nextOrder;
+				RouteTable added = new RouteTable(newNames, newTemplates, Arrays.copyOf(hits(), names.length + 1), newOrders, nextOrder + 1, filterSettings, filterSettings.build(newTemplates));
+				int[][] graph = overlaps;
+				if(graph != null)
+					added.overlaps = withRoute(graph, newTemplates, names.length, null);
+				return added;
+			}
+			CompiledTemplate[] newTemplates = templates.clone();
+			newTemplates[i] = template;
+			RouteTable replaced = new RouteTable(names, newTemplates, hits(), orders, nextOrder, filterSettings, filterSettings.build(newTemplates));
+			int[][] graph = overlaps;
+			if(graph != null)
+				replaced.overlaps = withRoute(graph, newTemplates, i, graph[i]);
+			return replaced.isOrderedAround(i) ? replaced : replaced.ordered(false);
+		}
+
+		/**
+		 * Checks that a route is ahead of every later-added route it overlaps, and behind every earlier-added route it overlaps
+		 */
+		boolean isOrderedAround(int i) {
+			int[][] graph = overlaps;
+			if(graph != null){
+				for (int j : graph[i])
+					if((orders[j] < orders[i]) != (j < i))
+						return false;
+				return true;
+			}
+			for (int j = 0; j < templates.length; j++)
+				if(j != i && (orders[j] < orders[i]) != (j < i) && templates[j].overlaps(templates[i]))
+					return false;
+			return true;
+		}
+
+		/**
+		 * Returns the overlap graph of the routes, building it the first time it is needed.
+		 * Only routes with the same number of segments can overlap, and within those, routes with different literals
+		 * at the same segment can not, so routes are only compared to the others in the same bucket,
+		 * and to the routes with a placeholder at the segment the buckets are split by.
+		 */
+		int[][] overlapGraph() {
+			int[][] graph = overlaps;
+			if(graph == null){
+				int n = templates.length;
+				int[] counts = new int[n];
+				graph = new int[n][];
+				for (int i = 0; i < n; i++)
+					graph[i] = new int[0];
+				Map<Integer,List<Integer>> bySegmentCount = new HashMap<>();
+				for (int i = 0; i < n; i++)
+					bySegmentCount.computeIfAbsent(templates[i].segmentCount(), count -> new ArrayList<>()).add(i);
+				for (List<Integer> group : bySegmentCount.values()) {
+					int position = mostDistinctLiterals(group);
+					Map<String,List<Integer>> byLiteral = new HashMap<>();
+					List<Integer> placeholders = new ArrayList<>();
+					for (int i : group) {
+						if(position < 0 || templates[i].isPlaceholder(position))
+							placeholders.add(i);
+						else
+							byLiteral.computeIfAbsent(templates[i].getSegment(position), literal -> new ArrayList<>()).add(i);
+					}
+					for (List<Integer> bucket : byLiteral.values())
+						for (int a = 0; a < bucket.size(); a++)
+							for (int b = 0; b < a; b++)
+								link(graph, counts, bucket.get(a), bucket.get(b));
+					for (int a = 0; a < placeholders.size(); a++) {
+						for (int b = 0; b < a; b++)
+							link(graph, counts, placeholders.get(a), placeholders.get(b));
+						for (List<Integer> bucket : byLiteral.values())
+							for (int j : bucket)
+								link(graph, counts, placeholders.get(a), j);
+					}
+				}
+				for (int i = 0; i < n; i++)
+					graph[i] = Arrays.copyOf(graph[i], counts[i]);
+				overlaps = graph;
+			}
+			return graph;
+		}
+
+		/**
+		 * Returns the segment with the most distinct literals among routes with the same number of segments, or -1 if they have no segments
+		 */
+		private int mostDistinctLiterals(List<Integer> group) {
+			int segmentCount = templates[group.get(0)].segmentCount();
+			int best = -1, bestDistinct = -1;
+			for (int position = 0; position < segmentCount; position++) {
+				Set<String> literals = new HashSet<>();
+				for (int i : group)
+					if(!templates[i].isPlaceholder(position))
+						literals.add(templates[i].getSegment(position));
+				if(literals.size() > bestDistinct){
+					best = position;
+					bestDistinct = literals.size();
+				}
+			}
+			return best;
+		}
+
+		private void link(int[][] graph, int[] counts, int i, int j) {
+			if(templates[i].overlaps(templates[j])){
+				graph[i] = append(graph[i], counts[i]++, j);
+				graph[j] = append(graph[j], counts[j]++, i);
+			}
+		}
+
+		/**
+		 * Updates an overlap graph for a route that was added or replaced, comparing only that route to the others
+		 * @param graph the overlap graph before the change
+		 * @param newTemplates the templates after the change
+		 * @param route the index of the route
+		 * @param previous the routes the replaced template overlapped, or null if the route was added
+		 */
+		private static int[][] withRoute(int[][] graph, CompiledTemplate[] newTemplates, int route, int[] previous) {
+			int[][] updated = Arrays.copyOf(graph, newTemplates.length);
+			if(previous != null)
+				for (int j : previous)
+					updated[j] = removed(updated[j], route);
+			int[] row = new int[newTemplates.length];
+			int count = 0;
+			for (int j = 0; j < newTemplates.length; j++) {
+				if(j != route && newTemplates[j].overlaps(newTemplates[route])){
+					row[count++] = j;
+					updated[j] = Arrays.copyOf(updated[j], updated[j].length + 1);
+					updated[j][updated[j].length - 1] = route;
+				}
+			}
+			updated[route] = Arrays.copyOf(row, count);
+			return updated;
+		}
+
+		private static int[] append(int[] row, int size, int route) {
+			if(size == row.length)
+				row = Arrays.copyOf(row, Math.max(4, size * 2));
+			row[size] = route;
+			return row;
+		}
+
+		private static int[] removed(int[] row, int route) {
+			int[] result = new int[row.length - 1];
+			int count = 0;
+			for (int j : row)
+				if(j != route)
+					result[count++] = j;
+			return result;
+		}
+
+		RouteTable without(String name) {
+			int i = indexOf(name);
+			String[] newNames = new String[names.length - 1];
+			CompiledTemplate[] newTemplates = new CompiledTemplate[templates.length - 1];
+			long[] oldHits = hits(), newHits = new long[names.length - 1];
+			long[] newOrders = new long[orders.length - 1];
+			System.arraycopy(names, 0, newNames, 0, i);
+			System.arraycopy(names, i + 1, newNames, i, names.length - i - 1);
+			System.arraycopy(templates, 0, newTemplates, 0, i);
+			System.arraycopy(templates, i + 1, newTemplates, i, templates.length - i - 1);
+			System.arraycopy(oldHits, 0, newHits, 0, i);
+			System.arraycopy(oldHits, i + 1, newHits, i, oldHits.length - i - 1);
+			System.arraycopy(orders, 0, newOrders, 0, i);
+			System.arraycopy(orders, i + 1, newOrders, i, orders.length - i - 1);
+			RouteTable removed = new RouteTable(newNames, newTemplates, newHits, newOrders, nextOrder, filterSettings, filterSettings.build(newTemplates));
+			int[][] graph = overlaps;
+			if(graph != null){
+				int[][] newGraph = new int[names.length - 1][];
+				for (int j = 0; j < names.length; j++) {
+					if(j == i)
+						continue;
+					int[] row = graph[j];
+					int[] newRow = new int[row.length];
+					int count = 0;
+					for (int k : row)
+						if(k != i)
+							newRow[count++] = k < i ? k : k - 1;
+					newGraph[j < i ? j : j - 1] = Arrays.copyOf(newRow, count);
+				}
+				removed.overlaps = newGraph;
+			}
+			return removed;
+		}
+
+		/**
+		 * Orders the routes by their counted matches, most first, and halves the counted matches
+		 */
+		RouteTable reordered() {
+			return ordered(true);
+		}
+
+		/**
+		 * Orders the routes by their counted matches, most first, without moving a route ahead of an earlier-added route it overlaps.
+		 * Routes only become eligible once every earlier-added route they overlap has been placed.
+		 * The overlap graph is only built for the first reorder, and is carried over to later tables.
+		 * Routes with equal counts keep their current order.
+		 * @param halve whether to halve the counted matches
+		 */
+		RouteTable ordered(boolean halve) {
+			final long[] oldHits = hits();
+			int n = names.length;
+			int[][] graph = overlapGraph();
+			int[] blockers = new int[n];
+			for (int i = 0; i < n; i++)
+				for (int j : graph[i])
+					if(orders[j] < orders[i])
+						blockers[i]++;
+			PriorityQueue<Integer> eligible = new PriorityQueue<>(Math.max(1, n),
+					(a, b) -> oldHits[a] != oldHits[b] ? Long.compare(oldHits[b], oldHits[a]) : Integer.compare(a, b));
+			for (int i = 0; i < n; i++)
+				if(blockers[i] == 0)
+					eligible.add(i);
+			String[] newNames = new String[n];
+			CompiledTemplate[] newTemplates = new CompiledTemplate[n];
+			long[] newHits = new long[n];
+			long[] newOrders = new long[n];
+			int[] positions = new int[n];
+			int[] placed = new int[n];
+			for (int k = 0; k < n; k++) {
+				int i = eligible.poll();
+				newNames[k] = names[i];
+				newTemplates[k] = templates[i];
+				newHits[k] = halve ? oldHits[i] / 2 : oldHits[i];
+				newOrders[k] = orders[i];
+				positions[i] = k;
+				placed[k] = i;
+				for (int j : graph[i])
+					if(orders[j] > orders[i] && --blockers[j] == 0)
+						eligible.add(j);
+			}
+			int[][] newGraph = new int[n][];
+			for (int k = 0; k < n; k++) {
+				int[] row = graph[placed[k]];
+				newGraph[k] = new int[row.length];
+				for (int e = 0; e < row.length; e++)
+					newGraph[k][e] = positions[row[e]];
+			}
+			//the filter does not depend on the order of the routes
+			RouteTable reordered = new RouteTable(newNames, newTemplates, newHits, newOrders, nextOrder, filterSettings, filter);
+			reordered.overlaps = newGraph;
+			return reordered;
+		}
+	}
+}
@@ -5,6 +5,6 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ UrlParametersMapTest.class, UrlParserTest.class, IntegrationTest.class })
+@SuiteClasses({ UrlParametersMapTest.class, UrlParserTest.class, CompiledTemplateTest.class, AsyncUrlParserTest.class, UrlRouterTest.class, CompactRouteTableTest.class, ParseStateTest.class, PrefixSharingParserTest.class, AllocationTest.class, IntegrationTest.class })
 public class AllTests {
 }
@@ -0,0 +1,158 @@
+package com.arjvik.arjmart.urlparser;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AllocationTest {
+
+	private static final int WARMUP = 20000;
+	private static final int ITERATIONS = 2000;
+
+	private static final String TEMPLATE = "/api/v2/tenants/{INT:tenantId}/items/{STRING:item}/{BOOLEAN:active}";
+	private static final String URI = "/api/v2/tenants/12345/items/apples/true";
+
+	/*
+	 * Bytes allocated per URI, by the java.specification.version they were measured on ("1.8" for Java 8), since the layout
+	 * of strings and what escape analysis removes change between major versions. The budgets leave about 5% over the
+	 * baseline of UrlParser.parse, and one small object over that of PrefixSharingParser, so that any real regression fails.
+	 * Only JDK 17 (compact strings, compressed references) has been measured so far: 2640 bytes for UrlParser.parse at worst
+	 * between C1 and C2, and 80 bytes for PrefixSharingParser when one value changes between URIs. On other versions,
+	 * including Java 8, which the library targets, the budget checks are skipped and report what they measured;
+	 * add that number here to enforce the budget there too. Re-measure when a change is meant to allocate more.
+	 */
+	private static final String JAVA_VERSION = System.getProperty("java.specification.version");
+	private static final Map<String,Integer> PARSE_BASELINES = new HashMap<>();
+	private static final Map<String,Integer> PREFIX_SHARING_BASELINES = new HashMap<>();
+	static {
+		PARSE_BASELINES.put("17", 2640);
+		PREFIX_SHARING_BASELINES.put("17", 80);
+	}
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue("Allocations can not be measured on this JVM", AllocationSampler.isSupported());
+	}
+
+	@Test
+	public void testParseStaysWithinBudget() throws Exception {
+		UrlParser parser = new UrlParser(TEMPLATE);
+		double bytes = AllocationSampler.averageBytes(() -> parser.parse(URI), WARMUP, ITERATIONS);
+		Integer baseline = PARSE_BASELINES.get(JAVA_VERSION);
+		Assume.assumeTrue("No baseline for UrlParser.parse on Java "+JAVA_VERSION+", which allocated "+bytes+" bytes", baseline != null);
+		int budget = baseline + baseline / 20;
+		assertTrue("UrlParser.parse allocated "+bytes+" bytes, over its budget of "+budget, bytes <= budget);
+	}
+
+	@Test
+	public void testPrefixSharingParserAllocatesLessThanUrlParser() throws Exception {
+		UrlParser parser = new UrlParser(TEMPLATE);
+		PrefixSharingParser batch = parser.newPrefixSharingParser();
+		String[] URIs = {URI, "/api/v2/tenants/12345/items/apples/false"};
+		int[] next = new int[1];
+		double shared = AllocationSampler.averageBytes(() -> batch.parse(URIs[next[0]++ & 1]), WARMUP, ITERATIONS);
+		double full = AllocationSampler.averageBytes(() -> parser.parse(URI), WARMUP, ITERATIONS);
+		assertTrue("PrefixSharingParser should allocate less than UrlParser", shared < full);
+		Integer baseline = PREFIX_SHARING_BASELINES.get(JAVA_VERSION);
+		Assume.assumeTrue("No baseline for PrefixSharingParser on Java "+JAVA_VERSION+", which allocated "+shared+" bytes", baseline != null);
+		int budget = baseline + 16;
+		assertTrue("PrefixSharingParser allocated "+shared+" bytes, over its budget of "+budget, shared <= budget);
+	}
+
+	@Test
+	public void testShardOfDoesNotAllocate() throws Exception {
+		CompiledTemplate compiled = new UrlParser(TEMPLATE).getCompiledTemplate();
+		ParamKey<?> key = compiled.getKey("tenantId");
+		double bytes = AllocationSampler.averageBytes(() -> compiled.shardOf(URI, key, 16), WARMUP, ITERATIONS);
+		assertTrue("CompiledTemplate.shardOf allocated "+bytes+" bytes", bytes < 1);
+	}
+
+	@Test
+	public void testCompactRouteTableMatchDoesNotAllocate() throws Exception {
+		CompactRouteTable table = new CompactRouteTable.Builder()
+				.add("items", TEMPLATE)
+				.add("tenant", "/api/v2/tenants/{INT:tenantId}")
+				.add("health", "/health")
+				.build();
+		double bytes = AllocationSampler.averageBytes(() -> table.match(URI), WARMUP, ITERATIONS);
+		assertTrue("CompactRouteTable.match allocated "+bytes+" bytes", bytes < 1);
+	}
+
+	@Test
+	public void testPrefixFilterRejectionDoesNotAllocate() throws Exception {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("items", TEMPLATE);
+		router.putRoute("health", "/health");
+		router.setPrefixFilter(true);
+		double bytes = AllocationSampler.averageBytes(() -> router.route("/wp-admin/setup.php"), WARMUP, ITERATIONS);
+		assertEquals("Unroutable URIs should be rejected by the prefix filter",router.getFilterPasses(),0L);
+		assertTrue("Rejecting an unroutable URI allocated "+bytes+" bytes", bytes < 1);
+	}
+
+	@Test
+	public void testMeasureCountsAllocations() throws Exception {
+		List<long[]> arrays = new ArrayList<>();
+		long bytes = AllocationSampler.measure(() -> arrays.add(new long[1024]));
+		assertTrue("AllocationSampler should count an 8KB array, but counted "+bytes+" bytes", bytes >= 8 * 1024);
+	}
+
+	@Test
+	public void testRetainedBytesOfTemplate() {
+		UrlParser parser = new UrlParser(TEMPLATE);
+		CompiledTemplate compiled = parser.getCompiledTemplate();
+		long bytes = compiled.estimateRetainedBytes();
+		assertTrue("A template should retain at least its characters", bytes > 2 * TEMPLATE.length());
+		assertTrue("A parser should retain its template", parser.estimateRetainedBytes() > bytes);
+		long longer = new UrlParser(TEMPLATE+"/{STRING:extra}").getCompiledTemplate().estimateRetainedBytes();
+		assertTrue("A longer template should retain more", longer > bytes);
+	}
+
+	@Test
+	public void testRetainedBytesOfParserWithoutTemplate() {
+		UrlParser parser = new UrlParser();
+		long empty = parser.estimateRetainedBytes();
+		assertTrue("A parser without a template should still be counted", empty > 0);
+		parser.setTemplate(TEMPLATE);
+		assertTrue("Setting a template should grow the parser", parser.estimateRetainedBytes() > empty);
+	}
+	
+	@Test
+	public void testRetainedBytesOfRouter() {
+		UrlRouter router = new UrlRouter();
+		long empty = router.estimateRetainedBytes();
+		router.putRoute("items", TEMPLATE);
+		long one = router.estimateRetainedBytes();
+		router.putRoute("health", "/health");
+		long two = router.estimateRetainedBytes();
+		assertTrue("Adding a route should grow the router", empty < one && one < two);
+		assertTrue("A router should retain its templates", one - empty >= router.getRoute("items").estimateRetainedBytes());
+		router.setPrefixFilter(true);
+		router.route(URI);
+		assertTrue("A router should retain its prefix filter", router.estimateRetainedBytes() > two);
+	}
+
+	@Test
+	public void testRetainedBytesOfParameters() throws ParameterParseException {
+		UrlParser parser = new UrlParser("/{INT:a}/{INT:b}");
+		long small = parser.parse("/1/2").estimateRetainedBytes();
+		long large = parser.parse("/1000/2000").estimateRetainedBytes();
+		assertTrue("Cached small integers should not be counted", small < large);
+		UrlParametersMap map = new UrlParametersMap();
+		long empty = map.estimateRetainedBytes();
+		map.addParameter("name", ParameterType.STRING, "value");
+		assertTrue("A map should retain its parameters", map.estimateRetainedBytes() > empty);
+	}
+
+	@Test
+	public void testRetainedBytesOfCompactRouteTable() {
+		CompactRouteTable table = new CompactRouteTable.Builder().add("items", TEMPLATE).build();
+		assertTrue("A compact table should retain its buffer", table.estimateRetainedBytes() > table.sizeInBytes());
+	}
+}
@@ -0,0 +1,105 @@
+package com.arjvik.arjmart.urlparser;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AsyncUrlParserTest {
+
+	@Test
+	public void testParse() throws ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}/{STRING:StringParam}");
+		AsyncUrlParser asyncParser = new AsyncUrlParser(parser, Runnable::run);
+		UrlParametersMap params = asyncParser.parse("/path/to/resource/1/string").toCompletableFuture().join();
+		assertEquals("AsyncUrlParser.parse should parse the URI",params.getInt("IntParam"),1);
+		assertEquals("AsyncUrlParser.parse should parse the URI",params.getString("StringParam"),"string");
+	}
+	
+	@Test
+	public void testParseFailure() {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}");
+		AsyncUrlParser asyncParser = new AsyncUrlParser(parser, Runnable::run);
+		try{
+			asyncParser.parse("/path/to/resource/NaN").toCompletableFuture().join();
+			fail("AsyncUrlParser.parse should complete exceptionally if the URI can not be parsed");
+		}catch(CompletionException e){
+			assertTrue("AsyncUrlParser.parse should complete with the ParameterParseException",e.getCause() instanceof ParameterParseException);
+		}
+	}
+	
+	@Test
+	public void testParseAll() throws ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/items/{INT:itemID}");
+		AsyncUrlParser asyncParser = new AsyncUrlParser(parser, Runnable::run);
+		List<UrlParametersMap> params = asyncParser.parseAll(Arrays.asList("/items/1","/items/2","/items/3")).toCompletableFuture().join();
+		assertEquals("AsyncUrlParser.parseAll should parse every URI",params.size(),3);
+		for (int i = 0; i < 3; i++)
+			assertEquals("AsyncUrlParser.parseAll should keep the order of the URIs",params.get(i).getInt("itemID"),i+1);
+	}
+	
+	@Test
+	public void testManyConcurrentParsesShareOneParser() throws InterruptedException, ParameterNotProvidedException {
+		final int callers = 100_000;
+		UrlParser parser = new UrlParser("/tenants/{INT:tenantID}/items/{STRING:itemName}");
+		parser.setStrict(true);
+		ParamKey<Integer> tenantID = parser.getCompiledTemplate().intKey("tenantID");
+		ExecutorService workers = Executors.newFixedThreadPool(4);
+		ExecutorService producers = Executors.newFixedThreadPool(16);
+		AsyncUrlParser asyncParser = new AsyncUrlParser(parser, workers);
+		List<CompletableFuture<UrlParametersMap>> results = new ArrayList<>(callers);
+		for (int i = 0; i < callers; i++){
+			final int id = i;
+			results.add(CompletableFuture.supplyAsync(() -> id, producers)
+					.thenCompose(n -> asyncParser.parse("/tenants/"+n+"/items/item"+n)));
+		}
+		for (int i = 0; i < callers; i++)
+			assertEquals("Every caller must get its own parameters",results.get(i).join().get(tenantID),Integer.valueOf(i));
+		producers.shutdown();
+		workers.shutdown();
+		assertTrue(workers.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals("No URIs should be left pending",asyncParser.pendingCount(),0);
+	}
+	
+	@Test
+	public void testLargeBacklogIsDrainedOnEveryThread() throws InterruptedException, ParameterNotProvidedException {
+		final int requests = 100_000, threads = 4;
+		UrlParser parser = new UrlParser("/items/{INT:itemID}");
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		CountDownLatch gate = new CountDownLatch(1);
+		Set<Thread> drainers = ConcurrentHashMap.newKeySet();
+		Executor gatedWorkers = task -> workers.execute(() -> {
+			try{
+				gate.await();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+			drainers.add(Thread.currentThread());
+			task.run();
+		});
+		AsyncUrlParser asyncParser = new AsyncUrlParser(parser, gatedWorkers, AsyncUrlParser.DEFAULT_BATCH_SIZE, threads);
+		List<CompletableFuture<UrlParametersMap>> results = new ArrayList<>(requests);
+		for (int i = 0; i < requests; i++)
+			results.add(asyncParser.parse("/items/"+i).toCompletableFuture());
+		assertEquals("Every URI should be pending until the drainers start",asyncParser.pendingCount(),requests);
+		gate.countDown();
+		for (int i = 0; i < requests; i++)
+			assertEquals("Every caller must get its own parameters",results.get(i).join().getInt("itemID"),i);
+		workers.shutdown();
+		assertTrue(workers.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals("Every executor thread should drain part of the backlog",drainers.size(),threads);
+		assertEquals("No URIs should be left pending",asyncParser.pendingCount(),0);
+	}
+}
@@ -0,0 +1,57 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.Random;
+
+/**
+ * Measures the size and match latency of a CompactRouteTable as the number of tenant routes grows,
+ * to check that bytes per route and match time stay flat. Not a JUnit test; run its main method,
+ * with a heap of at least 2GB for the largest table.
+ */
+public class CompactRouteTableBenchmark {
+
+	private static final int[] ROUTE_COUNTS = {10_000, 100_000, 1_000_000};
+	private static final int REQUESTS = 1 << 16;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) {
+		System.out.printf("%10s %14s %14s %12s%n", "routes", "size (bytes)", "bytes/route", "ns/match");
+		for (int routes : ROUTE_COUNTS) {
+			CompactRouteTable table = build(routes);
+			String[] requests = requests(new Random(31), routes);
+			System.out.printf("%10d %14d %14.1f %12.1f%n", routes, table.sizeInBytes(), table.bytesPerRoute(), run(table, requests));
+		}
+	}
+
+	private static CompactRouteTable build(int routes) {
+		CompactRouteTable.Builder builder = new CompactRouteTable.Builder();
+		for (int i = 0; i < routes; i++)
+			builder.add("tenant"+i, "/tenants/tenant"+i+"/items/{INT:id}/{STRING:name}");
+		return builder.build();
+	}
+
+	private static double run(CompactRouteTable table, String[] requests) {
+		double best = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int matched = 0;
+			for (String request : requests)
+				if(table.match(request) >= 0)
+					matched++;
+			long elapsed = System.nanoTime() - start;
+			if(matched != requests.length)
+				throw new IllegalStateException("Only "+matched+" requests matched");
+			best = Math.min(best, (double) elapsed / requests.length);
+		}
+		return best;
+	}
+
+	/**
+	 * Picks tenants uniformly, so that larger tables are not helped by a small hot set
+	 */
+	private static String[] requests(Random random, int routes) {
+		String[] requests = new String[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++)
+			requests[i] = "/tenants/tenant"+random.nextInt(routes)+"/items/"+random.nextInt(1000)+"/item"+i;
+		return requests;
+	}
+}
@@ -0,0 +1,186 @@
+package com.arjvik.arjmart.urlparser;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+public class CompactRouteTableTest {
+
+	@Test
+	public void testRoute() throws ParameterNotProvidedException {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("item", "/items/{INT:itemID}")
+				.add("cart", "/cart/{INT:itemID}/{BOOLEAN:inCart}")
+				.build();
+		RouteMatch match = routes.route("/cart/5/yes/");
+		assertEquals("CompactRouteTable.route should find the matching route",match.getRouteName(),"cart");
+		assertEquals("CompactRouteTable.route should parse the parameters",match.getParameters().getInt("itemID"),5);
+		assertEquals("CompactRouteTable.route should parse the parameters",match.getParameters().getBoolean("inCart"),true);
+		assertEquals("CompactRouteTable.match should return the index of the route",routes.match("/items/1"),0);
+	}
+	
+	@Test
+	public void testRouteOnNoMatch() {
+		CompactRouteTable routes = new CompactRouteTable.Builder().add("item", "/items/{INT:itemID}").build();
+		assertNull("CompactRouteTable.route should return null for mismatched literals",routes.route("/wp-admin/5"));
+		assertNull("CompactRouteTable.route should return null for extra segments",routes.route("/items/5/extra"));
+		assertNull("CompactRouteTable.route should return null for missing segments",routes.route("/items"));
+		assertNull("CompactRouteTable.route should return null for values of the wrong type",routes.route("/items/apples"));
+		assertEquals(routes.match("/items"),-1);
+	}
+	
+	@Test
+	public void testLiteralsBeforePlaceholders() throws ParameterNotProvidedException {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("item", "/items/{INT:itemID}/details")
+				.add("itemByName", "/items/{STRING:itemName}/details")
+				.add("newItem", "/items/new/details")
+				.add("newItemOptions", "/items/new/{STRING:option}")
+				.build();
+		assertEquals("Literal segments should be preferred",routes.route("/items/new/details").getRouteName(),"newItem");
+		assertEquals("Typed placeholders should match values of their type",routes.route("/items/5/details").getRouteName(),"item");
+		assertEquals("Typed placeholders should not match values of other types",routes.route("/items/apples/details").getRouteName(),"itemByName");
+		assertEquals("Matching should backtrack from literals to placeholders",routes.route("/items/new/colors").getParameters().getString("option"),"colors");
+	}
+	
+	@Test
+	public void testSharedStringPool() {
+		CompactRouteTable.Builder builder = new CompactRouteTable.Builder();
+		for (int i = 0; i < 1000; i++)
+			builder.add("r"+i, "/tenants/tenant"+i+"/items/{INT:itemID}/{STRING:itemName}");
+		CompactRouteTable routes = builder.build();
+		assertEquals(routes.routeCount(),1000);
+		assertEquals("Routes should be found by index",routes.getRouteName(routes.match("/tenants/tenant999/items/1/apples")),"r999");
+		assertTrue("Shared segments should be stored once, found "+routes.bytesPerRoute()+" bytes per route",routes.bytesPerRoute() < 192);
+	}
+	
+	@Test
+	public void testNonLatin1Segments() {
+		CompactRouteTable routes = new CompactRouteTable.Builder().add("unicode", "/\u0442\u0435\u0441\u0442/{INT:id}").add("latin", "/t\u00e9st/{INT:id}").build();
+		assertEquals(routes.getRouteName(routes.match("/\u0442\u0435\u0441\u0442/1")),"unicode");
+		assertEquals(routes.getRouteName(routes.match("/t\u00e9st/1")),"latin");
+		assertEquals(routes.match("/\u0442\u0435\u0441/1"),-1);
+	}
+	
+	@Test
+	public void testRootRoute() {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("root", "/")
+				.add("item", "/items/{INT:itemID}")
+				.add("hostRoot", HttpMethod.GET, "example.com", "/")
+				.build();
+		for (String URI : new String[]{"/", "", "//"}) {
+			assertEquals("The root route should match \""+URI+"\"",routes.match(URI),0);
+			assertEquals("The root route should be routed for \""+URI+"\"",routes.route(URI).getRouteName(),"root");
+			assertEquals("The root route of a host should match \""+URI+"\"",routes.match(HttpMethod.GET, "example.com", URI),2);
+		}
+		assertEquals("The root route should not hide other routes",routes.match("/items/5"),1);
+		assertEquals("The root route should not match other URIs",routes.match("/other"),-1);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testEmptyTemplateDuplicatesRoot() {
+		new CompactRouteTable.Builder().add("root", "/").add("empty", "");
+		fail("An empty template should duplicate the root route");
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testDuplicateRoute() {
+		new CompactRouteTable.Builder().add("a", "/items/{INT:itemID}").add("b", "/items/{INT:itemID}");
+		fail("Builder.add should throw an exception for duplicate routes");
+	}
+	
+	@Test
+	public void testMethodDispatch() throws ParameterNotProvidedException {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("getItem", HttpMethod.GET, null, "/items/{INT:itemID}")
+				.add("putItem", HttpMethod.PUT, null, "/items/{INT:itemID}")
+				.add("postItem", HttpMethod.POST, null, "/items/{STRING:itemName}")
+				.add("anyCart", "/cart")
+				.add("deleteCart", HttpMethod.DELETE, null, "/cart")
+				.build();
+		assertEquals("Routes should be matched by method",routes.route(HttpMethod.PUT, null, "/items/5").getRouteName(),"putItem");
+		assertEquals("Routes should be matched by method",routes.route(HttpMethod.GET, null, "/items/5").getParameters().getInt("itemID"),5);
+		assertEquals("Matching should backtrack to placeholders that allow the method",routes.route(HttpMethod.POST, null, "/items/5").getRouteName(),"postItem");
+		assertEquals("Routes for a method should be preferred",routes.route(HttpMethod.DELETE, null, "/cart").getRouteName(),"deleteCart");
+		assertEquals("Routes for any method should match other methods",routes.route(HttpMethod.GET, null, "/cart").getRouteName(),"anyCart");
+		assertNull("CompactRouteTable.route should return null for unmatched paths",routes.route(HttpMethod.GET, null, "/wp-admin"));
+	}
+	
+	@Test
+	public void testMethodNotAllowed() {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("getItem", HttpMethod.GET, null, "/items/{INT:itemID}")
+				.add("postItem", HttpMethod.POST, null, "/items/{STRING:itemName}")
+				.add("headItem", HttpMethod.HEAD, null, "/items/{INT:itemID}")
+				.build();
+		RouteMatch match = routes.route(HttpMethod.DELETE, null, "/items/5");
+		assertTrue("Paths that only match other methods should not be allowed",match.isMethodNotAllowed());
+		assertEquals("The methods of every matching route should be allowed",match.getAllowedMethods(),EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.POST));
+		assertEquals("Methods of routes that do not match the path should not be allowed",
+				CompactRouteTable.getAllowedMethods(routes.match(HttpMethod.DELETE, null, "/items/apples")),EnumSet.of(HttpMethod.POST));
+		assertEquals("Routes for a method should not match without one",routes.match("/items/5"),-1);
+	}
+	
+	@Test
+	public void testHostDispatch() {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("shopItem", HttpMethod.GET, "shop.example.com", "/items/{INT:itemID}")
+				.add("item", HttpMethod.GET, null, "/items/{INT:itemID}")
+				.add("shopCart", HttpMethod.POST, "shop.example.com", "/cart")
+				.add("cart", HttpMethod.GET, null, "/cart")
+				.build();
+		assertEquals("Routes for the host should be preferred",routes.route(HttpMethod.GET, "shop.example.com", "/items/5").getRouteName(),"shopItem");
+		assertEquals("Routes for any host should match other hosts",routes.route(HttpMethod.GET, "example.com", "/items/5").getRouteName(),"item");
+		assertEquals("Routes for any host should match without a host",routes.route(HttpMethod.GET, null, "/items/5").getRouteName(),"item");
+		assertEquals("Routes for any host should match when the routes for the host do not",routes.route(HttpMethod.GET, "shop.example.com", "/cart").getRouteName(),"cart");
+		assertEquals("Methods allowed for the host and for any host should be combined",
+				routes.route(HttpMethod.PUT, "shop.example.com", "/cart").getAllowedMethods(),EnumSet.of(HttpMethod.GET, HttpMethod.POST));
+		assertEquals("Methods allowed for other hosts should not be reported",
+				routes.route(HttpMethod.PUT, "example.com", "/cart").getAllowedMethods(),EnumSet.of(HttpMethod.GET));
+	}
+	
+	@Test
+	public void testHostIgnoresCase() {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("shopItem", HttpMethod.GET, "Shop.Example.com", "/items/{INT:itemID}")
+				.add("item", HttpMethod.GET, null, "/items/{INT:itemID}")
+				.build();
+		assertEquals("Hosts should be registered ignoring case",routes.route(HttpMethod.GET, "shop.example.com", "/items/5").getRouteName(),"shopItem");
+		assertEquals("Hosts should be matched ignoring case",routes.route(HttpMethod.GET, "SHOP.EXAMPLE.COM", "/items/5").getRouteName(),"shopItem");
+		assertEquals("Literal path segments should still be matched exactly",routes.match(HttpMethod.GET, "shop.example.com", "/ITEMS/5"),-1);
+	}
+	
+	@Test
+	public void testHostIgnoresDefaultPort() {
+		CompactRouteTable routes = new CompactRouteTable.Builder()
+				.add("shopItem", HttpMethod.GET, "shop.example.com:443", "/items/{INT:itemID}")
+				.add("adminItem", HttpMethod.GET, "admin.example.com:8080", "/items/{INT:itemID}")
+				.add("item", HttpMethod.GET, null, "/items/{INT:itemID}")
+				.build();
+		assertEquals("Default ports should be ignored when registering hosts",routes.route(HttpMethod.GET, "shop.example.com", "/items/5").getRouteName(),"shopItem");
+		assertEquals("Default ports should be ignored when matching hosts",routes.route(HttpMethod.GET, "Shop.Example.com:80", "/items/5").getRouteName(),"shopItem");
+		assertEquals("Other ports should be kept",routes.route(HttpMethod.GET, "admin.example.com:8080", "/items/5").getRouteName(),"adminItem");
+		assertEquals("Other ports should be matched exactly",routes.route(HttpMethod.GET, "admin.example.com", "/items/5").getRouteName(),"item");
+	}
+	
+	@Test
+	public void testHostIgnoresCaseInLargeTables() {
+		CompactRouteTable.Builder builder = new CompactRouteTable.Builder();
+		for (int i = 0; i < 20; i++)
+			builder.add("tenant"+i, HttpMethod.GET, "Tenant"+i+".example.com", "/items");
+		CompactRouteTable routes = builder.build();
+		assertEquals("Hosts should be matched ignoring case when hashed",routes.route(HttpMethod.GET, "TENANT7.example.com:443", "/items").getRouteName(),"tenant7");
+		assertEquals("Unknown hosts should not match",routes.match(HttpMethod.GET, "tenant70.example.com", "/items"),-1);
+	}
+	
+	@Test
+	public void testHttpMethodOf() {
+		assertEquals(HttpMethod.of("GET"),HttpMethod.GET);
+		assertEquals(HttpMethod.of(new StringBuilder("PATCH")),HttpMethod.PATCH);
+		assertNull("Method names should be case sensitive",HttpMethod.of("get"));
+		assertNull(HttpMethod.of("BREW"));
+	}
+}
@@ -0,0 +1,241 @@
+package com.arjvik.arjmart.urlparser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CompiledTemplateTest {
+
+	@Test
+	public void testCompile() {
+		CompiledTemplate compiled = CompiledTemplate.compile("/path/{INT:IntParam}/{STRING:StringParam}", "[/\\\\]");
+		assertTrue("Compiled template must keep the broken template", Arrays.deepEquals(compiled.getSegments(), new String[]{"","path","{INT:IntParam}","{STRING:StringParam}"}));
+		assertFalse("Literal segments are not placeholders", compiled.isPlaceholder(1));
+		assertTrue("Placeholder segments are placeholders", compiled.isPlaceholder(2));
+		assertEquals("Placeholder type must be parsed", compiled.getType(2), ParameterType.INT);
+		assertEquals("Placeholder name must be parsed", compiled.getName(3), "StringParam");
+		assertEquals("Slots must be given in template order", compiled.getSlot(3), 1);
+		assertEquals("Literal segments have no slot", compiled.getSlot(1), -1);
+	}
+	
+	@Test
+	public void testSlotOf() {
+		CompiledTemplate compiled = CompiledTemplate.compile("/{INT:a}/{STRING:b}/{BOOLEAN:c}/{INT:d}/{STRING:e}", "[/\\\\]");
+		for (ParamKey<?> key : compiled.getKeys())
+			assertEquals("slotOf must find every parameter", compiled.slotOf(key.getName()), key.getSlot());
+		assertEquals("slotOf must not find parameters that are not in the template", compiled.slotOf("f"), -1);
+	}
+	
+	@Test
+	public void testSlotOfWithEqualHashCodes() {
+		assertEquals("Test requires names with equal hash codes", "Aa".hashCode(), "BB".hashCode());
+		CompiledTemplate compiled = CompiledTemplate.compile("/{INT:Aa}/{INT:BB}", "[/\\\\]");
+		assertEquals("slotOf must find colliding parameters", compiled.slotOf("Aa"), 0);
+		assertEquals("slotOf must find colliding parameters", compiled.slotOf("BB"), 1);
+	}
+	
+	@Test
+	public void testRepeatedNameSharesSlot() {
+		CompiledTemplate compiled = CompiledTemplate.compile("/{INT:a}/{INT:a}", "[/\\\\]");
+		assertEquals("Repeated parameter names must share a slot", compiled.slotCount(), 1);
+		assertEquals("Repeated parameter names must share a slot", compiled.getSlot(2), 0);
+	}
+	
+	@Test
+	public void testMalformedPlaceholder() {
+		CompiledTemplate compiled = CompiledTemplate.compile("/{NOT-A-TYPE:name}", "[/\\\\]");
+		assertTrue("Malformed placeholders are still placeholders", compiled.isPlaceholder(1));
+		assertNull("Malformed placeholders have no type", compiled.getType(1));
+		assertEquals("Malformed placeholders have no slot", compiled.slotCount(), 0);
+	}
+	
+	@Test
+	public void testRootTemplate() throws ParameterParseException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/", "[/\\\\]");
+		assertEquals("The root template has no segments", compiled.segmentCount(), 0);
+		assertTrue("The root template should match a URI split into one empty segment", compiled.matchesSegments(new String[]{""}));
+		compiled.checkSegments(new String[]{""});
+		assertFalse("The root template should not match other URIs", compiled.matchesSegments(new String[]{"","a"}));
+		UrlParser parser = new UrlParser("/");
+		parser.setStrict(true);
+		for (String URI : new String[]{"/", "", "//"})
+			parser.parse(URI); //a strict root parser must accept every root URI
+	}
+	
+	@Test
+	public void testTypedKeys() {
+		CompiledTemplate compiled = CompiledTemplate.compile("/{INT:i}/{STRING:s}/{BOOLEAN:b}", "[/\\\\]");
+		assertEquals(compiled.intKey("i").getType(), ParameterType.INT);
+		assertEquals(compiled.stringKey("s").getType(), ParameterType.STRING);
+		assertEquals(compiled.booleanKey("b").getType(), ParameterType.BOOLEAN);
+		assertSame("Keys must be constant", compiled.intKey("i"), compiled.getKey("i"));
+	}
+	
+	@Test(expected=IncompatibleParameterTypeException.class)
+	public void testTypedKeyOnWrongType() {
+		CompiledTemplate.compile("/{INT:i}", "[/\\\\]").stringKey("i");
+		fail("Typed keys should throw an error if wrong type");
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testKeyOnMissingParameter() {
+		CompiledTemplate.compile("/{INT:i}", "[/\\\\]").getKey("j");
+		fail("getKey should throw an error if the template has no such parameter");
+	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/path/{INT:i}/{STRING:s}/{NOT-A-TYPE:x}/{BOOLEAN:b}/{INT:i}", "[/\\\\]");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		compiled.writeTo(new DataOutputStream(bytes));
+		CompiledTemplate read = CompiledTemplate.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals("Read template must keep the template", read.getTemplate(), compiled.getTemplate());
+		assertEquals("Read template must keep the delimiter", read.getDelimiter(), compiled.getDelimiter());
+		assertTrue("Read template must keep the segments", Arrays.deepEquals(read.getSegments(), compiled.getSegments()));
+		for (int i = 0; i < compiled.segmentCount(); i++){
+			assertEquals("Read template must keep placeholders", read.isPlaceholder(i), compiled.isPlaceholder(i));
+			assertEquals("Read template must keep types", read.getType(i), compiled.getType(i));
+			assertEquals("Read template must keep names", read.getName(i), compiled.getName(i));
+			assertEquals("Read template must keep slots", read.getSlot(i), compiled.getSlot(i));
+		}
+		for (ParamKey<?> key : compiled.getKeys())
+			assertEquals("Read template must keep the perfect hash", read.slotOf(key.getName()), key.getSlot());
+		assertEquals(read.slotOf("missing"), -1);
+	}
+	
+	@Test
+	public void testWriteAndReadRepeatedNameWithOtherType() throws IOException, ParameterParseException, ParameterNotProvidedException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/{INT:a}/{STRING:a}", "[/\\\\]");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		compiled.writeTo(new DataOutputStream(bytes));
+		CompiledTemplate read = CompiledTemplate.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		for (int i = 0; i < compiled.segmentCount(); i++){
+			assertEquals("Read template must keep types", read.getType(i), compiled.getType(i));
+			assertEquals("Read template must keep slots", read.getSlot(i), compiled.getSlot(i));
+		}
+		UrlParser parser = new UrlParser();
+		parser.setCompiledTemplate(read);
+		assertEquals("The last placeholder of a repeated name should win", parser.parse("/1/b").getString("a"), "b");
+	}
+	
+	@Test(expected=IOException.class)
+	public void testReadOnInvalidInput() throws IOException {
+		CompiledTemplate.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[]{0,1,'x',0,1,'/',0,0,0,1,9,0,0})));
+		fail("readFrom should throw an exception if the input does not hold a compiled template");
+	}
+	
+	@Test(expected=IOException.class)
+	public void testReadOnSlotOutOfRange() throws IOException {
+		CompiledTemplate.readFrom(snapshotOfSingleParameter(5, new int[]{0, -1}));
+		fail("readFrom should throw an exception if a slot is out of range");
+	}
+	
+	@Test(expected=IOException.class)
+	public void testReadOnNegativeSlot() throws IOException {
+		CompiledTemplate.readFrom(snapshotOfSingleParameter(-3, new int[]{0, -1}));
+		fail("readFrom should throw an exception if a placeholder has a negative slot");
+	}
+	
+	@Test(expected=IOException.class)
+	public void testReadOnHashTableWithoutEmptyEntry() throws IOException {
+		CompiledTemplate.readFrom(snapshotOfSingleParameter(0, new int[]{0, 0}));
+		fail("readFrom should throw an exception if the hash table has no empty entry");
+	}
+	
+	@Test(expected=IOException.class)
+	public void testReadOnHashTableMissingParameter() throws IOException {
+		CompiledTemplate.readFrom(snapshotOfSingleParameter(0, new int[]{-1, -1}));
+		fail("readFrom should throw an exception if the hash table does not find a parameter");
+	}
+	
+	@Test(expected=IOException.class)
+	public void testReadOnHashTableSlotOutOfRange() throws IOException {
+		CompiledTemplate.readFrom(snapshotOfSingleParameter(0, new int[]{7, -1}));
+		fail("readFrom should throw an exception if the hash table holds a slot out of range");
+	}
+	
+	private static DataInputStream snapshotOfSingleParameter(int slot, int[] table) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeUTF("/{INT:i}");
+		out.writeUTF("/");
+		out.writeInt(2);
+		out.writeByte(0);
+		out.writeUTF("");
+		out.writeByte(1);
+		out.writeUTF("{INT:i}");
+		out.writeByte(ParameterType.INT.ordinal());
+		out.writeUTF("i");
+		out.writeInt(slot);
+		out.writeInt(1);
+		out.writeInt(0x9E3779B9);
+		out.writeInt(table.length);
+		for (int entry : table)
+			out.writeInt(entry);
+		return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+	
+	@Test
+	public void testExtract() throws ParameterNotProvidedException, ParameterParseException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/tenants/{INT:tenantId}/items/{STRING:item}/{BOOLEAN:inStock}", "[/\\\\]");
+		assertEquals("extractInt must find the parameter", compiled.extractInt("/tenants/42/items/apples/yes/", compiled.intKey("tenantId")), 42);
+		assertEquals("extractBoolean must find the parameter", compiled.extractBoolean("/tenants/42/items/apples/no", compiled.booleanKey("inStock")), false);
+		assertEquals("Extraction must not check the rest of the URI", compiled.extractInt(new StringBuilder("/anything/7/not-a-route"), compiled.intKey("tenantId")), 7);
+	}
+	
+	@Test(expected=ParameterNotProvidedException.class)
+	public void testExtractOnMissingSegment() throws ParameterNotProvidedException, ParameterParseException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/tenants/{INT:tenantId}/items/{STRING:item}/{BOOLEAN:inStock}", "[/\\\\]");
+		compiled.extractBoolean("/tenants/42/items/apples/", compiled.booleanKey("inStock"));
+		fail("extractBoolean should throw an exception if the URI ends before the parameter");
+	}
+	
+	@Test
+	public void testExtractOnMalformedValue() throws ParameterNotProvidedException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/tenants/{INT:tenantId}", "[/\\\\]");
+		try{
+			compiled.extractInt("/tenants/4x2", compiled.intKey("tenantId"));
+			fail("extractInt should throw an exception if the value is not an integer");
+		}catch(ParameterParseException e){
+			assertEquals("The exception must hold the value", e.getValue(), "4x2");
+			assertEquals("The exception must hold the type", e.getTargetType(), ParameterType.INT);
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testExtractWithForeignKey() throws ParameterNotProvidedException, ParameterParseException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/tenants/{INT:tenantId}", "[/\\\\]");
+		compiled.extractInt("/tenants/1", CompiledTemplate.compile("/{INT:tenantId}", "[/\\\\]").intKey("tenantId"));
+		fail("extractInt should throw an exception for keys of other templates");
+	}
+	
+	@Test
+	public void testShardOf() throws ParameterNotProvidedException, ParameterParseException {
+		CompiledTemplate compiled = CompiledTemplate.compile("/tenants/{INT:tenantId}/{STRING:region}", "[/\\\\]");
+		ParamKey<Integer> tenantId = compiled.intKey("tenantId");
+		assertEquals("Integers must be hashed by value", compiled.hashParameter("/tenants/007/eu", tenantId), compiled.hashParameter("/tenants/7/us", tenantId));
+		assertTrue("Strings must be hashed by their characters",
+				compiled.hashParameter("/tenants/7/eu", compiled.stringKey("region")) != compiled.hashParameter("/tenants/7/us", compiled.stringKey("region")));
+		int[] counts = new int[10];
+		int moved = 0;
+		for (int i = 0; i < 10000; i++) {
+			int shard = compiled.shardOf("/tenants/"+i+"/eu", tenantId, 10);
+			int grown = compiled.shardOf("/tenants/"+i+"/eu", tenantId, 11);
+			counts[shard]++;
+			if(grown != shard){
+				assertEquals("Keys must only move to the new shard", grown, 10);
+				moved++;
+			}
+		}
+		for (int count : counts)
+			assertTrue("Shards must be balanced, found "+Arrays.toString(counts), count > 800 && count < 1200);
+		assertTrue("About 1/11 of keys must move, found "+moved, moved > 700 && moved < 1150);
+	}
+}
@@ -0,0 +1,113 @@
+package com.arjvik.arjmart.urlparser;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ParseStateTest {
+
+	@Test
+	public void testFeedInChunks() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}/{STRING:StringParam}");
+		parser.setStrict(true);
+		ParseState state = parser.newParseState();
+		state.feed("/path/t");
+		state.feed("o/resource/1");
+		state.feed("2/str");
+		state.feed("ing/");
+		UrlParametersMap params = state.finish();
+		assertEquals("ParseState should parse parameters split across chunks",params.getInt("IntParam"),12);
+		assertEquals("ParseState should parse parameters split across chunks",params.getString("StringParam"),"string");
+	}
+	
+	@Test
+	public void testFeedBytes() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/items/{INT:itemID}/{BOOLEAN:inCart}");
+		ParseState state = parser.newParseState();
+		state.feed(ByteBuffer.wrap("/items/4".getBytes(StandardCharsets.ISO_8859_1)));
+		state.feed(ByteBuffer.wrap("2/yes".getBytes(StandardCharsets.ISO_8859_1)));
+		UrlParametersMap params = state.finish();
+		assertEquals("ParseState should parse bytes",params.getInt("itemID"),42);
+		assertEquals("ParseState should parse bytes",params.getBoolean("inCart"),true);
+	}
+	
+	@Test
+	public void testRejectsOnFirstBadLiteral() throws ParameterParseException {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}");
+		parser.setStrict(true);
+		ParseState state = parser.newParseState();
+		state.feed("/pa");
+		try{
+			state.feed("x");
+			fail("ParseState should reject the URI as soon as a literal character does not match");
+		}catch(TemplateMismatchException e){
+			assertEquals("TemplateMismatchException should report the mismatched segment",e.getSegmentIndex(),1);
+			assertEquals("TemplateMismatchException should report the segment read so far",e.getValue(),"pax");
+		}
+	}
+	
+	@Test(expected=TemplateMismatchException.class)
+	public void testRejectsExtraSegmentBeforeFinish() throws ParameterParseException {
+		UrlParser parser = new UrlParser("/items/{INT:itemID}");
+		parser.setStrict(true);
+		ParseState state = parser.newParseState();
+		state.feed("/items/1/");
+		state.feed("e");
+		fail("ParseState should reject extra segments as soon as they start");
+	}
+	
+	@Test(expected=ParameterParseException.class)
+	public void testRejectsBadParameterWhenSegmentCompletes() throws ParameterParseException {
+		UrlParser parser = new UrlParser("/items/{INT:itemID}/more");
+		ParseState state = parser.newParseState();
+		state.feed("/items/NaN/");
+		fail("ParseState should convert parameters as soon as their segment is complete");
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testFeedAfterFinish() throws ParameterParseException {
+		ParseState state = new UrlParser("/items").newParseState();
+		state.feed("/items");
+		state.finish();
+		state.feed("/more");
+		fail("ParseState should not accept chunks after it has finished");
+	}
+	
+	@Test
+	public void testSameResultAsParse() throws ParameterParseException, ParameterNotProvidedException {
+		String[] URIs = {"/path/1/a/x", "/path/1/a/x/", "/path/1/a/x//", "/path/1", "/path//a/x", "/path/1/a/x/extra", "path/1/a/x", "/", "", "//", "/path/1/a/y", "/other/2/b/x"};
+		for (String template : new String[]{"/path/{INT:i}/{STRING:s}/x", "/"}) {
+			for (boolean strict : new boolean[]{false, true}) {
+				UrlParser parser = new UrlParser(template);
+				parser.setStrict(strict);
+				for (String URI : URIs) {
+					for (int split = 0; split <= URI.length(); split++) {
+						String expected = describe(parser, URI, null);
+						String actual = describe(parser, URI, split);
+						assertEquals("ParseState should match parse for "+URI+" split at "+split+" with "+template+(strict ? " (strict)" : ""), expected, actual);
+					}
+				}
+			}
+		}
+	}
+
+	private static String describe(UrlParser parser, String URI, Integer split) throws ParameterNotProvidedException {
+		UrlParametersMap params;
+		try{
+			if(split == null){
+				params = parser.parse(URI);
+			}else{
+				ParseState state = parser.newParseState();
+				state.feed(URI.substring(0, split));
+				state.feed(URI.substring(split));
+				params = state.finish();
+			}
+		}catch(ParameterParseException e){
+			return e.getClass().getSimpleName();
+		}
+		return (params.parameterExists("i") ? params.getInt("i") : "-")+" "+(params.parameterExists("s") ? params.getString("s") : "-");
+	}
+}
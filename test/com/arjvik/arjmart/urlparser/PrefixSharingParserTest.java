@@ -0,0 +1,146 @@
+package com.arjvik.arjmart.urlparser;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PrefixSharingParserTest {
+
+	@Test
+	public void testReusesSharedPrefix() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/api/v2/tenants/{INT:tenantId}/items/{STRING:item}");
+		PrefixSharingParser batch = parser.newPrefixSharingParser();
+		List<UrlParametersMap> results = batch.parseAll(Arrays.asList(
+				"/api/v2/tenants/123/items/apples",
+				"/api/v2/tenants/123/items/bananas",
+				"/api/v2/tenants/124/items/apples"));
+		assertEquals("PrefixSharingParser should parse parameters",results.get(1).getInt("tenantId"),123);
+		assertEquals("PrefixSharingParser should parse the differing suffix",results.get(1).getString("item"),"bananas");
+		assertEquals("PrefixSharingParser should parse differing parameters",results.get(2).getInt("tenantId"),124);
+		assertEquals("Segments in the shared prefix should be reused",batch.getReusedSegments(),6+4);
+		assertEquals("Only differing segments should be parsed",batch.getParsedSegments(),7+1+3);
+	}
+
+	@Test
+	public void testDoesNotReusePartialSegments() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/tenants/{INT:tenantId}/{STRING:item}");
+		PrefixSharingParser batch = parser.newPrefixSharingParser();
+		batch.parse("/tenants/12/apples");
+		UrlParametersMap params = batch.parse("/tenants/123/apples");
+		assertEquals("Segments that only share a prefix should be parsed again",params.getInt("tenantId"),123);
+		params = batch.parse("/tenants/123");
+		assertFalse("Parameters past the end of the URI should not be reused",params.parameterExists("item"));
+	}
+
+	@Test
+	public void testContinuesAfterFailure() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/tenants/{INT:tenantId}/{BOOLEAN:active}");
+		PrefixSharingParser batch = parser.newPrefixSharingParser();
+		batch.parse("/tenants/1/yes");
+		try{
+			batch.parse("/tenants/1/maybe");
+			fail("PrefixSharingParser should throw an exception for malformed values");
+		}catch(ParameterParseException e){
+			try{
+				parser.parse("/tenants/1/maybe");
+			}catch(ParameterParseException expected){
+				assertEquals("PrefixSharingParser should throw the same exception as UrlParser",e.getMessage(),expected.getMessage());
+			}
+		}
+		assertEquals("PrefixSharingParser should continue after a failure",batch.parse("/tenants/1/no").getBoolean("active"),false);
+	}
+
+	@Test
+	public void testFollowsTemplateChanges() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/a/{INT:x}");
+		PrefixSharingParser batch = parser.newPrefixSharingParser();
+		batch.parse("/a/1");
+		parser.setTemplate("/a/{STRING:y}");
+		assertEquals("PrefixSharingParser should use the current template",batch.parse("/a/1").getString("y"),"1");
+	}
+
+	@Test
+	public void testFailsLikeUrlParserWithoutTemplate() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser();
+		PrefixSharingParser batch = parser.newPrefixSharingParser();
+		String expected = null, actual = null;
+		try{
+			parser.parse("/a/1");
+		}catch(RuntimeException e){
+			expected = e.toString();
+		}
+		try{
+			batch.parse("/a/1");
+		}catch(RuntimeException e){
+			actual = e.toString();
+		}
+		assertEquals("PrefixSharingParser should fail like UrlParser without a template",actual,expected);
+		parser.setTemplate("/a/{INT:x}");
+		assertEquals("PrefixSharingParser should parse once a template is set",batch.parse("/a/1").getInt("x"),1);
+	}
+	
+	@Test
+	public void testFollowsDelimiterChanges() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/a/{INT:x}/{STRING:y}");
+		PrefixSharingParser batch = parser.newPrefixSharingParser();
+		batch.parse("/a/1/b");
+		parser.setDelimiter("/");
+		for (String URI : new String[]{"/a/1/b\\c", "/a/1/b\\d", "/a/2/b\\d"}) {
+			UrlParametersMap expected = parser.parse(URI), actual = batch.parse(URI);
+			assertEquals("PrefixSharingParser should split by the current delimiter of the parser",actual.getInt("x"),expected.getInt("x"));
+			assertEquals("PrefixSharingParser should split by the current delimiter of the parser",actual.getString("y"),expected.getString("y"));
+		}
+	}
+	
+	@Test
+	public void testMatchesUrlParser() throws ParameterNotProvidedException {
+		Random random = new Random(38);
+		String[] words = {"api", "v2", "12", "123", "-4", "yes", "no", "x", ""};
+		for (boolean strict : new boolean[]{false, true}) {
+			UrlParser parser = new UrlParser("/api/v2/{INT:tenant}/{STRING:item}/{BOOLEAN:active}/{INT:tenant}");
+			parser.setStrict(strict);
+			List<String> URIs = new ArrayList<>();
+			for (int i = 0; i < 5000; i++) {
+				StringBuilder URI = new StringBuilder(random.nextInt(4) == 0 ? "" : "/api/v2");
+				int segments = random.nextInt(6);
+				for (int j = 0; j < segments; j++)
+					URI.append(random.nextInt(8) == 0 ? '\\' : '/').append(words[random.nextInt(words.length)]);
+				if(random.nextBoolean())
+					URI.append('/');
+				if(URI.length() > 0)
+					URIs.add(URI.toString());
+			}
+			Collections.sort(URIs);
+			PrefixSharingParser batch = parser.newPrefixSharingParser();
+			for (String URI : URIs) {
+				String expected, actual;
+				try{
+					expected = describe(parser.parse(URI));
+				}catch(ParameterParseException e){
+					expected = e.getClass().getSimpleName()+": "+e.getMessage();
+				}
+				try{
+					actual = describe(batch.parse(URI));
+				}catch(ParameterParseException e){
+					actual = e.getClass().getSimpleName()+": "+e.getMessage();
+				}
+				assertEquals("PrefixSharingParser should match UrlParser for "+URI+(strict ? " in strict mode" : ""),actual,expected);
+			}
+			assertTrue("Sorted URIs should share segments",batch.getReusedSegments() > 0);
+		}
+	}
+
+	private static String describe(UrlParametersMap params) throws ParameterNotProvidedException {
+		StringBuilder description = new StringBuilder();
+		description.append(params.parameterExists("tenant") ? params.getInt("tenant") : "-").append(',');
+		description.append(params.parameterExists("item") ? params.getString("item") : "-").append(',');
+		description.append(params.parameterExists("active") ? params.getBoolean("active") : "-");
+		return description.toString();
+	}
+}
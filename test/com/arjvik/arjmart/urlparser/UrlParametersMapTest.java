@@ -65,7 +65,7 @@ public class UrlParametersMapTest {
 	public void testGetStringOnNotProvided() throws IncompatibleParameterTypeException, ParameterNotProvidedException{
 		@SuppressWarnings("unchecked")
 		Map<String,ParameterValue> map = (Map<String, ParameterValue>) mock(HashMap.class);
-		when(map.get("DoesntExist")).thenReturn(new ParameterValue(ParameterType.STRING,"value"));
+		when(map.get("DoesntExist")).thenReturn(null);
 		when(map.containsKey("DoesntExist")).thenReturn(false);
 		UrlParametersMap parameters = new UrlParametersMap(map);
 		parameters.getString("DoesntExist");
@@ -98,7 +98,7 @@ public class UrlParametersMapTest {
 	public void testGetIntOnNotProvided() throws IncompatibleParameterTypeException, ParameterNotProvidedException{
 		@SuppressWarnings("unchecked")
 		Map<String,ParameterValue> map = (Map<String, ParameterValue>) mock(HashMap.class);
-		when(map.get("DoesntExist")).thenReturn(new ParameterValue(ParameterType.STRING,"value"));
+		when(map.get("DoesntExist")).thenReturn(null);
 		when(map.containsKey("DoesntExist")).thenReturn(false);
 		UrlParametersMap parameters = new UrlParametersMap(map);
 		parameters.getInt("DoesntExist");
@@ -132,10 +132,52 @@ public class UrlParametersMapTest {
 	public void testGetBooleanOnNotProvided() throws IncompatibleParameterTypeException, ParameterNotProvidedException{
 		@SuppressWarnings("unchecked")
 		Map<String,ParameterValue> map = (Map<String, ParameterValue>) mock(HashMap.class);
-		when(map.get("DoesntExist")).thenReturn(new ParameterValue(ParameterType.STRING,"value"));
+		when(map.get("DoesntExist")).thenReturn(null);
 		when(map.containsKey("DoesntExist")).thenReturn(false);
 		UrlParametersMap parameters = new UrlParametersMap(map);
 		parameters.getBoolean("DoesntExist");
 		fail("ParameterMap.getBoolean should throw an error if parameter not provided");
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testGetByKey() throws ParameterNotProvidedException {
+		CompiledTemplate template = CompiledTemplate.compile("/{INT:IntParam}/{STRING:StringParam}", "[/\\\\]");
+		UrlParametersMap parameters = new UrlParametersMap(template);
+		parameters.addParameter("IntParam", ParameterType.INT, 1);
+		assertEquals("ParameterMap.get should return the right value",parameters.get(template.intKey("IntParam")),Integer.valueOf(1));
+		assertEquals("ParameterMap.getInt should find slotted parameters",parameters.getInt("IntParam"),1);
+		assertTrue("ParameterMap.parameterExists should find slotted parameters",parameters.parameterExists("IntParam"));
+		assertFalse("ParameterMap.parameterExists should return false for slotted parameters that were not provided",parameters.parameterExists("StringParam"));
+	}
+	
+	@Test
+	public void testGetByKeyOfOtherTemplate() throws ParameterNotProvidedException {
+		UrlParametersMap parameters = new UrlParametersMap();
+		parameters.addParameter("IntParam", ParameterType.INT, 1);
+		ParamKey<Integer> key = CompiledTemplate.compile("/{INT:IntParam}", "[/\\\\]").intKey("IntParam");
+		assertEquals("ParameterMap.get should fall back to the name of the key",parameters.get(key),Integer.valueOf(1));
+	}
+	
+	@Test
+	public void testAddParameterNotInTemplate() throws ParameterNotProvidedException {
+		UrlParametersMap parameters = new UrlParametersMap(CompiledTemplate.compile("/{INT:IntParam}", "[/\\\\]"));
+		parameters.addParameter("Other", ParameterType.STRING, "value");
+		assertEquals("ParameterMap should store parameters that are not in the template",parameters.getString("Other"),"value");
+	}
+	
+	@Test(expected=ParameterNotProvidedException.class)
+	public void testGetByKeyOnNotProvided() throws ParameterNotProvidedException {
+		CompiledTemplate template = CompiledTemplate.compile("/{INT:IntParam}", "[/\\\\]");
+		new UrlParametersMap(template).get(template.intKey("IntParam"));
+		fail("ParameterMap.get should throw an error if parameter not provided");
+	}
+	
+	@Test(expected=IncompatibleParameterTypeException.class)
+	public void testGetByKeyOnWrongType() throws ParameterNotProvidedException {
+		CompiledTemplate template = CompiledTemplate.compile("/{INT:IntParam}", "[/\\\\]");
+		UrlParametersMap parameters = new UrlParametersMap(template);
+		parameters.addParameter("IntParam", ParameterType.STRING, "value");
+		parameters.get(template.intKey("IntParam"));
+		fail("ParameterMap.get should throw an error if wrong type");
+	}
+}
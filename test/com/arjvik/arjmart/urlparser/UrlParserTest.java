@@ -61,6 +61,85 @@ public class UrlParserTest {
 		);
 	}
 	
+	@Test
+	public void testStrictParseOnMatchingURI() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}/{STRING:StringParam}");
+		parser.setStrict(true);
+		UrlParametersMap params = parser.parse("/path/to/resource/1/string/");
+		assertEquals("Strict parse should still parse parameters",params.getInt("IntParam"),1);
+		assertEquals("Strict parse should still parse parameters",params.getString("StringParam"),"string");
+	}
+	
+	@Test
+	public void testStrictParseOnLiteralMismatch() throws ParameterParseException {
+		UrlParser parser = spy(new UrlParser());
+		parser.setTemplate("/path/to/resource/{INT:IntParam}/{STRING:StringParam}");
+		parser.setStrict(true);
+		try{
+			parser.parse("/foo/bar/baz/1/string");
+			fail("Strict parse should throw an exception if a literal segment does not match");
+		}catch(TemplateMismatchException e){
+			assertEquals("TemplateMismatchException should report the first mismatched segment",e.getSegmentIndex(),1);
+			assertEquals("TemplateMismatchException should report the mismatched value",e.getValue(),"foo");
+		}
+		verify(parser,never()).parseParameter(anyString(), anyString(), any(UrlParametersMap.class));
+	}
+	
+	@Test(expected=TemplateMismatchException.class)
+	public void testStrictParseOnExtraSegments() throws ParameterParseException {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}");
+		parser.setStrict(true);
+		parser.parse("/path/to/resource/1/extra");
+		fail("Strict parse should throw an exception if the URI has extra segments");
+	}
+	
+	@Test(expected=TemplateMismatchException.class)
+	public void testStrictParseOnMissingSegments() throws ParameterParseException {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}");
+		parser.setStrict(true);
+		parser.parse("/path/to/resource");
+		fail("Strict parse should throw an exception if the URI is missing segments");
+	}
+	
+	@Test
+	public void testLenientParseIgnoresLiterals() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = new UrlParser("/path/to/resource/{INT:IntParam}");
+		assertFalse("UrlParser should not be strict by default",parser.isStrict());
+		assertEquals("Lenient parse should ignore literal segments",parser.parse("/foo/bar/baz/1").getInt("IntParam"),1);
+	}
+	
+	@Test
+	public void testParseUsesCompiledTemplate() throws ParameterParseException, ParameterNotProvidedException {
+		UrlParser parser = spy(new UrlParser());
+		parser.setTemplate("/{INT:IntParam}/{STRING:StringParam}/{BOOLEAN:BooleanParam}");
+		UrlParametersMap params = parser.parse("/1/string/yes");
+		assertEquals("UrlParser.parse should parse integers",params.getInt("IntParam"),1);
+		assertEquals("UrlParser.parse should parse strings",params.getString("StringParam"),"string");
+		assertEquals("UrlParser.parse should parse booleans",params.getBoolean("BooleanParam"),true);
+		verify(parser,never()).parseParameter(anyString(), anyString(), any(UrlParametersMap.class));
+	}
+
+	@Test
+	public void testParseFailsLikeParseParameter() {
+		UrlParser parser = new UrlParser("/{INT:IntParam}/{BOOLEAN:BooleanParam}/{FLOAT:FloatParam}");
+		String[] URIs = {"/one/yes/1.0", "/1/maybe/1.0", "/1/yes/1.0"};
+		for (String URI : URIs) {
+			String expected = null, actual = null;
+			try{
+				parser.parse(URI);
+			}catch(ParameterParseException e){
+				actual = e.getMessage();
+			}
+			try{
+				parser.parse(URI, new UrlParametersMap());
+			}catch(ParameterParseException e){
+				expected = e.getMessage();
+			}
+			assertNotNull("UrlParser.parse should reject "+URI,actual);
+			assertEquals("UrlParser.parse should fail like parseParameter on "+URI,actual,expected);
+		}
+	}
+
 	@Test
 	public void testParseParameterOnString() throws ParameterParseException {
 		UrlParser parser = spy(new UrlParser());
@@ -0,0 +1,59 @@
+package com.arjvik.arjmart.urlparser;
+
+import java.util.Random;
+
+/**
+ * Measures routing time on a skewed workload, where the most requested routes are registered last,
+ * with and without adaptive reordering. Not a JUnit test; run its main method.
+ */
+public class UrlRouterBenchmark {
+
+	private static final int ROUTES = 200;
+	private static final int REQUESTS = 1 << 16;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) {
+		String[] requests = zipfRequests(new Random(42));
+		System.out.printf("static:   %.1f ns/route%n", run(new UrlRouter(), requests));
+		UrlRouter adaptive = new UrlRouter();
+		adaptive.setAdaptive(true);
+		System.out.printf("adaptive: %.1f ns/route%n", run(adaptive, requests));
+	}
+
+	private static double run(UrlRouter router, String[] requests) {
+		for (int i = 0; i < ROUTES; i++)
+			router.putRoute("r"+i, "/api/r"+i+"/{INT:id}/{STRING:name}");
+		double best = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int matched = 0;
+			for (String request : requests)
+				if(router.route(request) != null)
+					matched++;
+			long elapsed = System.nanoTime() - start;
+			if(matched != requests.length)
+				throw new IllegalStateException("Only "+matched+" requests matched");
+			best = Math.min(best, (double) elapsed / requests.length);
+		}
+		return best;
+	}
+
+	/**
+	 * Picks routes with a Zipf(1) distribution, where the most requested route is the last one registered
+	 */
+	private static String[] zipfRequests(Random random) {
+		double[] cumulative = new double[ROUTES];
+		double sum = 0;
+		for (int k = 0; k < ROUTES; k++)
+			cumulative[k] = sum += 1.0 / (k + 1);
+		String[] requests = new String[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++) {
+			double u = random.nextDouble() * sum;
+			int k = 0;
+			while(cumulative[k] < u)
+				k++;
+			requests[i] = "/api/r"+(ROUTES - 1 - k)+"/"+random.nextInt(1000)+"/item"+i;
+		}
+		return requests;
+	}
+}
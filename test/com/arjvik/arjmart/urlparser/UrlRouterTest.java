@@ -0,0 +1,382 @@
+package com.arjvik.arjmart.urlparser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class UrlRouterTest {
+
+	@Test
+	public void testRoute() throws ParameterNotProvidedException {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("item", "/items/{INT:itemID}");
+		router.putRoute("cart", "/cart/{INT:itemID}/{BOOLEAN:inCart}");
+		RouteMatch match = router.route("/cart/5/yes/");
+		assertEquals("UrlRouter.route should find the matching route",match.getRouteName(),"cart");
+		assertEquals("UrlRouter.route should parse the parameters",match.getParameters().getInt("itemID"),5);
+		assertEquals("UrlRouter.route should parse the parameters",match.getParameters().getBoolean("inCart"),true);
+	}
+	
+	@Test
+	public void testRouteOnNoMatch() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("item", "/items/{INT:itemID}");
+		assertNull("UrlRouter.route should return null for mismatched literals",router.route("/wp-admin/5"));
+		assertNull("UrlRouter.route should return null for extra segments",router.route("/items/5/extra"));
+		assertNull("UrlRouter.route should return null for missing segments",router.route("/items"));
+	}
+	
+	@Test
+	public void testRouteRoot() {
+		for (boolean prefixFiltered : new boolean[]{false, true}) {
+			UrlRouter router = new UrlRouter();
+			router.putRoute("item", "/items/{INT:itemID}");
+			router.putRoute("root", "/");
+			router.setPrefixFilter(prefixFiltered);
+			for (String URI : new String[]{"/", "", "//"})
+				assertEquals("The root route should match \""+URI+"\"",router.route(URI).getRouteName(),"root");
+			assertEquals("The root route should not hide other routes",router.route("/items/5").getRouteName(),"item");
+			assertNull("The root route should not match other URIs",router.route("/other"));
+		}
+	}
+	
+	@Test
+	public void testRouteUsesTypesAsConstraints() throws ParameterNotProvidedException {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("item", "/items/{INT:itemID}");
+		router.putRoute("itemByName", "/items/{STRING:itemName}");
+		assertEquals("Typed placeholders should match values of their type",router.route("/items/5").getRouteName(),"item");
+		assertEquals("Typed placeholders should not match values of other types",router.route("/items/apples").getRouteName(),"itemByName");
+	}
+	
+	@Test
+	public void testRouteOrder() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("any", "/items/{STRING:itemName}");
+		router.putRoute("item", "/items/{INT:itemID}");
+		assertEquals("The first matching route should win",router.route("/items/5").getRouteName(),"any");
+	}
+	
+	@Test
+	public void testReplaceAndRemoveRoute() {
+		UrlRouter router = new UrlRouter();
+		assertNull("putRoute should return null for new routes",router.putRoute("a", "/a"));
+		router.putRoute("b", "/b");
+		assertEquals("putRoute should return the replaced template",router.putRoute("a", "/c"),"/a");
+		assertEquals("Replaced routes should keep their position",router.getRouteNames(),Arrays.asList("a","b"));
+		assertNull("Replaced templates should no longer match",router.route("/a"));
+		assertEquals("Replacement templates should match",router.route("/c").getRouteName(),"a");
+		assertEquals("removeRoute should return the removed template",router.removeRoute("a"),"/c");
+		assertNull("removeRoute should return null for missing routes",router.removeRoute("a"));
+		assertNull("Removed routes should no longer match",router.route("/c"));
+		assertEquals(router.getRouteNames(),Arrays.asList("b"));
+	}
+	
+	@Test
+	public void testUpdatesWhileRouting() throws InterruptedException {
+		final UrlRouter router = new UrlRouter();
+		router.putRoute("stable", "/stable/{INT:id}");
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicReference<String> failure = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			while(running.get()){
+				RouteMatch match = router.route("/stable/1");
+				if(match == null || !match.getRouteName().equals("stable"))
+					failure.set("Readers must always see the stable route");
+			}
+		});
+		reader.start();
+		for (int i = 0; i < 10_000; i++){
+			router.putRoute("volatile"+(i%10), "/volatile/"+i);
+			router.removeRoute("volatile"+((i+5)%10));
+		}
+		running.set(false);
+		reader.join();
+		assertNull(failure.get(),failure.get());
+	}
+	
+	@Test
+	public void testSnapshot() throws IOException, ParameterNotProvidedException {
+		UrlRouter router = RouteCompiler.compile(Arrays.asList(
+				"# items",
+				"item /items/{INT:itemID}",
+				"",
+				"itemByName   /items/{STRING:itemName}"), "[/\\\\]");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		router.writeSnapshot(bytes);
+		UrlRouter read = UrlRouter.readSnapshot(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals("Snapshots must keep the delimiter",read.getDelimiter(),router.getDelimiter());
+		assertEquals("Snapshots must keep the routes in order",read.getRouteNames(),Arrays.asList("item","itemByName"));
+		assertEquals("Snapshot routes must match",read.route("/items/5").getParameters().getInt("itemID"),5);
+		assertEquals("Snapshot routes must match",read.route("/items/apples").getRouteName(),"itemByName");
+	}
+	
+	@Test(expected=IOException.class)
+	public void testSnapshotOnInvalidInput() throws IOException {
+		UrlRouter.readSnapshot(new ByteArrayInputStream("not a snapshot".getBytes()));
+		fail("readSnapshot should throw an exception if the input is not a snapshot");
+	}
+	
+	@Test
+	public void testReorderMovesHotRoutesFirst() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("a", "/a/{INT:id}");
+		router.putRoute("b", "/b/{INT:id}");
+		router.putRoute("c", "/c/{INT:id}");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(Integer.MAX_VALUE);
+		for (int i = 0; i < 10; i++)
+			router.route("/c/"+i);
+		router.route("/b/1");
+		assertEquals("Matches should be counted",router.getSampledHits("c"),10);
+		router.reorder();
+		assertEquals("Frequently matched routes should be tried first",router.getRouteNames(),Arrays.asList("c","b","a"));
+		assertEquals("Counted matches should be halved on reorder",router.getSampledHits("c"),5);
+	}
+	
+	@Test
+	public void testReorderKeepsOverlappingRoutesInOrder() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("any", "/x/{STRING:name}");
+		router.putRoute("literal", "/x/literal");
+		router.putRoute("item", "/items/{INT:id}");
+		router.putRoute("itemByName", "/items/{STRING:name}");
+		router.putRoute("other", "/items/all");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(Integer.MAX_VALUE);
+		for (int i = 0; i < 10; i++){
+			router.route("/x/literal");
+			router.route("/items/apples");
+			router.route("/items/all");
+		}
+		router.reorder();
+		assertEquals("Overlapping routes should keep their order",router.route("/x/literal").getRouteName(),"any");
+		assertEquals("Overlapping routes should keep their order",router.route("/items/all").getRouteName(),"itemByName");
+		assertEquals("Routes should not move ahead of routes they overlap",router.getRouteNames().indexOf("item") < router.getRouteNames().indexOf("itemByName"),true);
+	}
+	
+	@Test
+	public void testReorderMovesPastTypedPlaceholders() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("item", "/items/{INT:id}");
+		router.putRoute("all", "/items/all");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(Integer.MAX_VALUE);
+		router.route("/items/all");
+		router.reorder();
+		assertEquals("Typed placeholders should not overlap literals of other types",router.getRouteNames(),Arrays.asList("all","item"));
+	}
+	
+	@Test
+	public void testReplaceAfterReorderKeepsInsertionOrder() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("a", "/items/{INT:id}");
+		router.putRoute("b", "/other/{INT:id}");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(Integer.MAX_VALUE);
+		for (int i = 0; i < 10; i++)
+			router.route("/other/"+i);
+		router.reorder();
+		assertEquals("Frequently matched routes should be tried first",router.getRouteNames(),Arrays.asList("b","a"));
+		router.putRoute("b", "/items/{STRING:name}");
+		assertEquals("A replaced route should not move ahead of an earlier route it now overlaps",router.route("/items/5").getRouteName(),"a");
+		assertEquals("Replaced routes should still match",router.route("/items/apples").getRouteName(),"b");
+	}
+	
+	@Test
+	public void testReorderUsesInsertionOrderAfterReplace() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("a", "/items/{INT:id}");
+		router.putRoute("b", "/other/{INT:id}");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(Integer.MAX_VALUE);
+		for (int i = 0; i < 10; i++)
+			router.route("/other/"+i);
+		router.reorder();
+		router.putRoute("b", "/items/{STRING:name}");
+		for (int i = 0; i < 10; i++)
+			router.route("/items/apples");
+		router.reorder();
+		assertEquals("Reordering should keep overlapping routes in insertion order",router.getRouteNames(),Arrays.asList("a","b"));
+		assertEquals("Reordering should not change which route matches",router.route("/items/5").getRouteName(),"a");
+	}
+	
+	@Test
+	public void testSnapshotKeepsInsertionOrder() throws IOException {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("a", "/a/{INT:id}");
+		router.putRoute("b", "/b/{INT:id}");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(Integer.MAX_VALUE);
+		router.route("/b/1");
+		router.reorder();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		router.writeSnapshot(bytes);
+		UrlRouter read = UrlRouter.readSnapshot(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals("Snapshots should be written in insertion order",read.getRouteNames(),Arrays.asList("a","b"));
+	}
+	
+	@Test
+	public void testAdaptiveRouterReordersAutomatically() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("a", "/a");
+		router.putRoute("b", "/b");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(8);
+		List<Runnable> reorders = new ArrayList<>();
+		router.setReorderExecutor(reorders::add);
+		for (int i = 0; i < 8; i++)
+			router.route("/b");
+		assertEquals("Adaptive routers should not reorder on the routing thread",router.getRouteNames(),Arrays.asList("a","b"));
+		assertEquals("Adaptive routers should schedule a reorder after the reorder interval",reorders.size(),1);
+		reorders.get(0).run();
+		assertEquals("Adaptive routers should reorder after the reorder interval",router.getRouteNames(),Arrays.asList("b","a"));
+	}
+	
+	@Test
+	public void testAdaptiveRouterSchedulesOneReorderAtATime() {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("a", "/a");
+		router.putRoute("b", "/b");
+		router.setAdaptive(true);
+		router.setSampleRate(1);
+		router.setReorderInterval(4);
+		List<Runnable> reorders = new ArrayList<>();
+		router.setReorderExecutor(reorders::add);
+		for (int i = 0; i < 16; i++)
+			router.route("/b");
+		assertEquals("Only one reorder should be scheduled at a time",reorders.size(),1);
+		reorders.get(0).run();
+		for (int i = 0; i < 4; i++)
+			router.route("/b");
+		assertEquals("A reorder should be scheduled again once the previous one finishes",reorders.size(),2);
+	}
+	
+	@Test
+	public void testReorderAfterRouteChanges() {
+		Random random = new Random(33);
+		String[] templates = {"/items/{INT:id}", "/items/{STRING:name}", "/items/all", "/other/{INT:id}", "/other/{BOOLEAN:flag}", "/x/{STRING:a}/{STRING:b}"};
+		String[] URIs = {"/items/5", "/items/all", "/items/apples", "/other/1", "/other/true", "/other/x", "/x/1/2"};
+		UrlRouter adaptive = new UrlRouter();
+		UrlRouter reference = new UrlRouter();
+		adaptive.setAdaptive(true);
+		adaptive.setSampleRate(1);
+		adaptive.setReorderInterval(Integer.MAX_VALUE);
+		for (int step = 0; step < 500; step++) {
+			String name = "r"+random.nextInt(8);
+			if(random.nextInt(4) == 0){
+				adaptive.removeRoute(name);
+				reference.removeRoute(name);
+			}else{
+				String template = templates[random.nextInt(templates.length)];
+				adaptive.putRoute(name, template);
+				reference.putRoute(name, template);
+			}
+			for (int i = 0; i < 3; i++)
+				adaptive.route(URIs[random.nextInt(URIs.length)]);
+			if(random.nextInt(3) == 0)
+				adaptive.reorder();
+			for (String URI : URIs) {
+				RouteMatch expected = reference.route(URI);
+				RouteMatch actual = adaptive.route(URI);
+				assertEquals("Reordering should not change which route "+URI+" matches",
+						actual == null ? null : actual.getRouteName(), expected == null ? null : expected.getRouteName());
+			}
+		}
+	}
+	
+	@Test
+	public void testPrefixFilter() throws ParameterNotProvidedException {
+		UrlRouter router = new UrlRouter();
+		router.putRoute("item", "/items/{INT:itemID}");
+		router.putRoute("cart", "/api/cart/{INT:itemID}");
+		router.putRoute("about", "/about");
+		router.setPrefixFilter(true);
+		assertNull("The prefix filter should reject unroutable prefixes",router.route("/wp-admin/setup.php"));
+		assertNull("The prefix filter should reject unroutable prefixes",router.route("/api/wp-admin/5"));
+		assertEquals("The prefix filter should count rejections",router.getFilterRejections(),2);
+		assertEquals("The prefix filter should not reject routable URIs",router.route("/items/5/").getParameters().getInt("itemID"),5);
+		assertEquals("The prefix filter should not reject routable URIs",router.route("/api/cart/7").getRouteName(),"cart");
+		assertEquals("The prefix filter should not reject routable URIs",router.route("/about").getRouteName(),"about");
+		assertEquals("The prefix filter should count passes",router.getFilterPasses(),3);
+	}
+	
+	@Test
+	public void testPrefixFilterIsRebuiltWhenRoutesChange() {
+		UrlRouter router = new UrlRouter();
+		router.setPrefixFilter(true);
+		router.putRoute("item", "/items/{INT:itemID}");
+		assertNull("The prefix filter should reject unroutable prefixes",router.route("/cart/5"));
+		router.putRoute("cart", "/cart/{INT:itemID}");
+		assertEquals("The prefix filter should include new routes",router.route("/cart/5").getRouteName(),"cart");
+		router.putRoute("any", "/{STRING:page}");
+		assertEquals("Routes starting with placeholders should disable the prefix filter",router.route("/about").getRouteName(),"any");
+		long rejections = router.getFilterRejections();
+		router.route("/wp-admin/5");
+		assertEquals("A disabled prefix filter should not reject URIs",router.getFilterRejections(),rejections);
+	}
+	
+	@Test
+	public void testPrefixFilterIsBuiltBeforeRouting() {
+		UrlRouter router = new UrlRouter();
+		for (int i = 0; i < 20; i++)
+			router.putRoute("item"+i, "/items"+i+"/{INT:itemID}");
+		long unfiltered = router.estimateRetainedBytes();
+		router.setPrefixFilter(true);
+		long filtered = router.estimateRetainedBytes();
+		assertTrue("Enabling the prefix filter should build it before routing",filtered > unfiltered);
+		router.setFilterFalsePositiveRate(0.0001);
+		assertTrue("Changing the false positive rate should rebuild the prefix filter",router.estimateRetainedBytes() > filtered);
+		router.setFilterDepth(1);
+		router.putRoute("cart", "/cart/{INT:itemID}");
+		assertEquals("Changing the routes should keep the prefix filter settings",router.getFilterDepth(),1);
+		assertEquals("Changing the routes should keep the prefix filter settings",router.getFilterFalsePositiveRate(),0.0001,0);
+		router.setPrefixFilter(false);
+		router.removeRoute("cart");
+		assertEquals("Disabling the prefix filter should drop it",router.estimateRetainedBytes(),unfiltered);
+	}
+	
+	@Test
+	public void testPrefixFilterNeverChangesRoutes() {
+		Random random = new Random(34);
+		String[] words = {"a", "b", "items", "api", "v1", "5", "yes", ""};
+		UrlRouter router = new UrlRouter(), filtered = new UrlRouter();
+		filtered.setPrefixFilter(true);
+		filtered.setFilterDepth(2);
+		for (int i = 0; i < 40; i++) {
+			StringBuilder template = new StringBuilder();
+			int segments = 1 + random.nextInt(4);
+			for (int j = 0; j < segments; j++)
+				template.append('/').append(j > 0 && random.nextInt(3) == 0 ? "{INT:p"+j+"}" : words[random.nextInt(words.length - 1)]);
+			router.putRoute("r"+i, template.toString());
+			filtered.putRoute("r"+i, template.toString());
+		}
+		for (int i = 0; i < 10000; i++) {
+			StringBuilder URI = new StringBuilder();
+			int segments = random.nextInt(6);
+			for (int j = 0; j < segments; j++)
+				URI.append(random.nextBoolean() ? '/' : '\\').append(words[random.nextInt(words.length)]);
+			RouteMatch expected = router.route(URI.toString()), actual = filtered.route(URI.toString());
+			assertEquals("The prefix filter should not change the route of "+URI,expected == null ? null : expected.getRouteName(),actual == null ? null : actual.getRouteName());
+		}
+		assertTrue("The prefix filter should reject some URIs",filtered.getFilterRejections() > 0);
+	}
+	
+}